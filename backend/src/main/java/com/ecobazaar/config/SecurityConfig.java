@@ -1,13 +1,25 @@
 package com.ecobazaar.config;
 
+import com.ecobazaar.security.JwtAuthenticationFilter;
+import com.ecobazaar.security.JwtUtils;
+import com.ecobazaar.security.OwnerAuthorization;
+import com.ecobazaar.security.RateLimitFilter;
+import com.ecobazaar.security.RateLimits;
+import com.ecobazaar.security.RevokedTokens;
+import com.ecobazaar.security.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -18,6 +30,21 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    @Autowired
+    private RateLimits rateLimits;
+
+    @Autowired
+    private OwnerAuthorization ownerAuthorization;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -29,6 +56,25 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Operational counters are for admins, not the public catalog
+                .requestMatchers("/products/cache/stats", "/auth/rate-limit/stats").hasRole("ADMIN")
+                // A seller's bulk import, export and dashboard stats are for that seller (or an admin)
+                .requestMatchers("/products/seller/{sellerId}/import", "/products/seller/{sellerId}/export",
+                        "/products/seller/{sellerId}/stats")
+                    .access(ownerAuthorization)
+                // So are creating, editing and deleting that seller's products
+                .requestMatchers(HttpMethod.POST, "/products/seller/{sellerId}").access(ownerAuthorization)
+                .requestMatchers(HttpMethod.PUT, "/products/{productId}/seller/{sellerId}").access(ownerAuthorization)
+                .requestMatchers(HttpMethod.DELETE, "/products/{productId}/seller/{sellerId}").access(ownerAuthorization)
+                // Any other product write needs a signed-in caller; only reads are public
+                .requestMatchers(HttpMethod.POST, "/products/**").authenticated()
+                .requestMatchers(HttpMethod.PUT, "/products/**").authenticated()
+                .requestMatchers(HttpMethod.DELETE, "/products/**").authenticated()
+                // A user's orders and notifications are theirs alone (or an admin's)
+                .requestMatchers("/orders/user/{userId}/**", "/notifications/user/{userId}/**")
+                    .access(ownerAuthorization)
+                // Single orders are checked against the caller in OrderController
+                .requestMatchers("/orders/**", "/notifications/**").authenticated()
                 .requestMatchers(
                     "/auth/**",
                     "/products/**",
@@ -37,7 +83,15 @@ public class SecurityConfig {
                     "/test/**"
                 ).permitAll()
                 .anyRequest().authenticated()
-            );
+            )
+            // 401 rather than 403 without a valid token, so the client refreshes its access token
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+            // Not a bean, so it runs only in the security chain and not again as a servlet filter
+            .addFilterBefore(new JwtAuthenticationFilter(jwtUtils, verifiedTokenCache, revokedTokens),
+                UsernamePasswordAuthenticationFilter.class)
+            // After authentication, so cart writes can be limited per signed-in account
+            .addFilterAfter(new RateLimitFilter(rateLimits), JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -3,6 +3,9 @@ package com.ecobazaar.controller;
 import com.ecobazaar.dto.AuthResponse;
 import com.ecobazaar.dto.LoginRequest;
 import com.ecobazaar.dto.RegisterRequest;
+import com.ecobazaar.security.PasswordHashingBusyException;
+import com.ecobazaar.security.RateLimitExceededException;
+import com.ecobazaar.security.RateLimits;
 import com.ecobazaar.service.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,11 +23,16 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private RateLimits rateLimits;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest request) {
         try {
             AuthResponse response = authService.register(request);
             return ResponseEntity.status(201).body(response);
+        } catch (PasswordHashingBusyException e) {
+            return Overload.serviceUnavailable(e);
         } catch (RuntimeException e) {
             Map<String,String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -35,8 +43,14 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<?> loginUser(@Valid @RequestBody LoginRequest request) {
         try {
+            // Per account, so guessing one user's password from many IPs is limited too
+            rateLimits.checkLoginByEmail(request.getEmail());
             AuthResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (RateLimitExceededException e) {
+            return Overload.tooManyRequests(e);
+        } catch (PasswordHashingBusyException e) {
+            return Overload.serviceUnavailable(e);
         } catch (RuntimeException e) {
             Map<String,String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -44,6 +58,38 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@RequestBody Map<String, String> body) {
+        try {
+            String refreshToken = body.get("refreshToken");
+            if (refreshToken == null || refreshToken.isBlank()) {
+                throw new RuntimeException("Refresh token is required");
+            }
+            return ResponseEntity.ok(authService.refresh(refreshToken));
+        } catch (RuntimeException e) {
+            Map<String,String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(401).body(error);
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logoutUser(@RequestBody Map<String, String> body) {
+        String refreshToken = body.get("refreshToken");
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            authService.logout(refreshToken);
+        }
+        Map<String,String> response = new HashMap<>();
+        response.put("message", "Logged out");
+        return ResponseEntity.ok(response);
+    }
+
+    // Allowed and rejected requests per rate limit; admins only, see SecurityConfig
+    @GetMapping("/rate-limit/stats")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimits.getStats());
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Auth service running");
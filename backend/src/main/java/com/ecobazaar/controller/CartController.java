@@ -1,5 +1,6 @@
 package com.ecobazaar.controller;
 
+import com.ecobazaar.dto.CartBatchRequest;
 import com.ecobazaar.dto.CartItemRequest;
 import com.ecobazaar.dto.CartResponse;
 import com.ecobazaar.service.CartService;
@@ -30,13 +31,34 @@ public class CartController {
         }
     }
     
-    // Add item to cart
+    // Add item to cart; with delta=true only the changed lines, totals and version are returned
     @PostMapping("/user/{userId}/items")
     public ResponseEntity<?> addToCart(
             @PathVariable Long userId,
-            @Valid @RequestBody CartItemRequest request) {
+            @Valid @RequestBody CartItemRequest request,
+            @RequestParam(defaultValue = "false") boolean delta) {
         try {
-            CartResponse cart = cartService.addToCart(userId, request);
+            Object cart = delta
+                    ? cartService.addToCartDelta(userId, request)
+                    : cartService.addToCart(userId, request);
+            return ResponseEntity.ok(cart);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    // Apply an ordered batch of add/set/remove operations and return the resulting cart (or its delta)
+    @PostMapping("/user/{userId}/items/batch")
+    public ResponseEntity<?> applyBatch(
+            @PathVariable Long userId,
+            @Valid @RequestBody CartBatchRequest request,
+            @RequestParam(defaultValue = "false") boolean delta) {
+        try {
+            Object cart = delta
+                    ? cartService.applyBatchDelta(userId, request)
+                    : cartService.applyBatch(userId, request);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -50,9 +72,12 @@ public class CartController {
     public ResponseEntity<?> updateCartItem(
             @PathVariable Long userId,
             @PathVariable Long productId,
-            @RequestParam Integer quantity) {
+            @RequestParam Integer quantity,
+            @RequestParam(defaultValue = "false") boolean delta) {
         try {
-            CartResponse cart = cartService.updateCartItem(userId, productId, quantity);
+            Object cart = delta
+                    ? cartService.updateCartItemDelta(userId, productId, quantity)
+                    : cartService.updateCartItem(userId, productId, quantity);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -65,9 +90,12 @@ public class CartController {
     @DeleteMapping("/user/{userId}/items/{productId}")
     public ResponseEntity<?> removeFromCart(
             @PathVariable Long userId,
-            @PathVariable Long productId) {
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "false") boolean delta) {
         try {
-            CartResponse cart = cartService.removeFromCart(userId, productId);
+            Object cart = delta
+                    ? cartService.removeFromCartDelta(userId, productId)
+                    : cartService.removeFromCart(userId, productId);
             return ResponseEntity.ok(cart);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -0,0 +1,62 @@
+package com.ecobazaar.controller;
+
+import org.springframework.http.CacheControl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+// ETag and Cache-Control helpers shared by the catalog endpoints
+final class HttpCaching {
+    
+    // Product detail: browsers may reuse it briefly, then must revalidate with If-None-Match
+    static final CacheControl PRODUCT_DETAIL = CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    
+    // Catalog lists change with every product write: always revalidate, which is cheap with an ETag
+    static final CacheControl CATALOG_LIST = CacheControl.noCache().cachePublic();
+    
+    // Seller views are per seller and should not sit in shared caches
+    static final CacheControl SELLER_LIST = CacheControl.noCache().cachePrivate();
+    
+    private HttpCaching() {}
+    
+    // Strong ETag from a version plus a SHA-256 digest of the request parameters that shape the payload.
+    // Each parameter is length-prefixed (null has no length), so different parameter lists never share an input.
+    static String etag(String version, Object... parameters) {
+        StringBuilder normalized = new StringBuilder();
+        for (Object parameter : parameters) {
+            if (parameter == null) {
+                normalized.append("-;");
+            } else {
+                String value = parameter.toString();
+                normalized.append(value.length()).append(':').append(value).append(';');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + version + "-" + HexFormat.of().formatHex(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    // True if an If-None-Match header names the given ETag (or "*")
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
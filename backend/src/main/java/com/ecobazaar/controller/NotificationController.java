@@ -0,0 +1,24 @@
+package com.ecobazaar.controller;
+
+import com.ecobazaar.dto.NotificationResponse;
+import com.ecobazaar.service.NotificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/notifications")
+@CrossOrigin(origins = "http://localhost:3000")
+public class NotificationController {
+    
+    @Autowired
+    private NotificationService notificationService;
+    
+    // Get user's latest notifications
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<NotificationResponse>> getUserNotifications(@PathVariable Long userId) {
+        return ResponseEntity.ok(notificationService.getUserNotifications(userId));
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecobazaar.controller;
+
+import com.ecobazaar.dto.OrderResponse;
+import com.ecobazaar.security.OwnerAuthorization;
+import com.ecobazaar.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/orders")
+@CrossOrigin(origins = "http://localhost:3000")
+public class OrderController {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private OwnerAuthorization ownerAuthorization;
+    
+    // Check out the user's cart; fulfilment continues in the background
+    @PostMapping("/user/{userId}/checkout")
+    public ResponseEntity<?> checkout(@PathVariable Long userId) {
+        try {
+            OrderResponse order = orderService.checkout(userId);
+            return ResponseEntity.ok(order);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    // Get user's orders, newest first
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<OrderResponse>> getUserOrders(@PathVariable Long userId) {
+        return ResponseEntity.ok(orderService.getUserOrders(userId));
+    }
+    
+    // Get one order; someone else's order is reported as not found
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderResponse> getOrder(@PathVariable Long orderId) {
+        try {
+            OrderResponse order = orderService.getOrder(orderId);
+            if (!ownerAuthorization.allows(SecurityContextHolder.getContext().getAuthentication(), order.getUserId())) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(order);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
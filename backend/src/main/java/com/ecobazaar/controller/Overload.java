@@ -0,0 +1,34 @@
+package com.ecobazaar.controller;
+
+import com.ecobazaar.security.PasswordHashingBusyException;
+import com.ecobazaar.security.RateLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Responses for requests turned away by admission control or rate limits
+final class Overload {
+    
+    private Overload() {}
+    
+    // 503 with Retry-After, so clients back off instead of retrying at once
+    static ResponseEntity<Map<String, String>> serviceUnavailable(PasswordHashingBusyException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+    
+    // 429 with Retry-After: this client has used up its rate limit
+    static ResponseEntity<Map<String, String>> tooManyRequests(RateLimitExceededException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+}
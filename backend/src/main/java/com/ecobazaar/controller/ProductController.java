@@ -1,7 +1,14 @@
 package com.ecobazaar.controller;
 
+import com.ecobazaar.dto.ProductFilterRequest;
+import com.ecobazaar.dto.ProductFilterResponse;
+import com.ecobazaar.dto.ProductImportResponse;
 import com.ecobazaar.dto.ProductRequest;
 import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.dto.SellerStatsResponse;
+import com.ecobazaar.dto.ProductSliceResponse;
+import com.ecobazaar.service.ProductExportService;
+import com.ecobazaar.service.ProductImportService;
 import com.ecobazaar.service.ProductService;
 import com.ecobazaar.service.AuthService;
 import jakarta.validation.Valid;
@@ -10,9 +17,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +43,12 @@ public class ProductController {
     @Autowired
     private AuthService authService;
     
+    @Autowired
+    private ProductExportService productExportService;
+    
+    @Autowired
+    private ProductImportService productImportService;
+    
     // Test endpoint
     @GetMapping("/test")
     public ResponseEntity<Map<String, Object>> testProductsEndpoint() {
@@ -46,9 +67,34 @@ public class ProductController {
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) Long categoryId) {
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        
+        // Taken before any loading, so a write that lands mid-request yields a fresh tag next time
+        String etag = HttpCaching.etag(productService.getCatalogVersion(),
+                page, size, sortBy, sortDir, search, categoryId, after);
+        if (HttpCaching.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(HttpCaching.CATALOG_LIST).build();
+        }
         
         try {
+            // Cursor mode: any "after" parameter (empty for the first page) switches to keyset pagination
+            if (after != null) {
+                if (search != null && !search.trim().isEmpty()) {
+                    throw new RuntimeException("Cursor pagination is not supported for search results");
+                }
+                
+                ProductSliceResponse slice = productService.getActiveProductsAfter(
+                        categoryId, sortBy, sortDir.equalsIgnoreCase("desc"), after, size);
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("products", slice.getProducts());
+                response.put("nextCursor", slice.getNextCursor());
+                response.put("hasNext", slice.isHasNext());
+                return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.CATALOG_LIST).body(response);
+            }
+            
             Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             
@@ -71,7 +117,7 @@ public class ProductController {
             response.put("hasNext", products.hasNext());
             response.put("hasPrevious", products.hasPrevious());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.CATALOG_LIST).body(response);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to fetch products");
@@ -80,22 +126,138 @@ public class ProductController {
         }
     }
     
+    // Faceted filter: text, category, price, carbon footprint, rating and stock combined,
+    // with per-category and per-bucket counts for the sidebar
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal minCarbon,
+            @RequestParam(required = false) BigDecimal maxCarbon,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        
+        if (!productService.isFilterReady()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Product filters are warming up, please retry shortly");
+            return ResponseEntity.status(503).header("Retry-After", "5").body(error);
+        }
+        
+        String etag = HttpCaching.etag(productService.getCatalogVersion(), page, size, sortBy, sortDir, search,
+                categoryId, minPrice, maxPrice, minCarbon, maxCarbon, minRating, inStock);
+        if (HttpCaching.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(HttpCaching.CATALOG_LIST).build();
+        }
+        
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setQuery(search);
+        request.setCategoryId(categoryId);
+        request.setMinPrice(minPrice);
+        request.setMaxPrice(maxPrice);
+        request.setMinCarbon(minCarbon);
+        request.setMaxCarbon(maxCarbon);
+        request.setMinRating(minRating);
+        request.setInStock(inStock);
+        
+        ProductFilterResponse response = productService.filterProducts(
+                request, sortBy, sortDir.equalsIgnoreCase("desc"), page, size);
+        return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.CATALOG_LIST).body(response);
+    }
+    
+    // Product detail cache counters (hits, misses, evictions); admins only, see SecurityConfig
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productService.getDetailCacheStats());
+    }
+    
     // Get product by ID
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getProduct(@PathVariable Long id) {
+    public ResponseEntity<ProductResponse> getProduct(
+            @PathVariable Long id,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            // Served from the detail cache when warm, so a matching tag usually costs no query
             ProductResponse product = productService.getProductById(id);
-            return ResponseEntity.ok(product);
+            String etag = HttpCaching.etag("p" + product.getId(), product.getUpdatedAt());
+            if (HttpCaching.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(304).eTag(etag).cacheControl(HttpCaching.PRODUCT_DETAIL).build();
+            }
+            return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.PRODUCT_DETAIL).body(product);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
-    // Get seller's products
+    // Get seller's products; pass page (and optionally size) to get one page instead of the whole list
     @GetMapping("/seller/{sellerId}")
-    public ResponseEntity<List<ProductResponse>> getSellerProducts(@PathVariable Long sellerId) {
-        List<ProductResponse> products = productService.getSellerProducts(sellerId);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getSellerProducts(
+            @PathVariable Long sellerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = HttpCaching.etag(productService.getCatalogVersion(), "seller", sellerId, page, size);
+        if (HttpCaching.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(HttpCaching.SELLER_LIST).build();
+        }
+        
+        if (page == null) {
+            List<ProductResponse> products = productService.getSellerProducts(sellerId);
+            return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.SELLER_LIST).body(products);
+        }
+        
+        Page<ProductResponse> products = productService.getSellerProducts(sellerId,
+                PageRequest.of(page, size, Sort.by("id").descending()));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", products.getContent());
+        response.put("currentPage", products.getNumber());
+        response.put("totalItems", products.getTotalElements());
+        response.put("totalPages", products.getTotalPages());
+        response.put("hasNext", products.hasNext());
+        response.put("hasPrevious", products.hasPrevious());
+        return ResponseEntity.ok().eTag(etag).cacheControl(HttpCaching.SELLER_LIST).body(response);
+    }
+    
+    // Seller dashboard aggregates: active/inactive counts, stock, low stock, average rating and carbon
+    @GetMapping("/seller/{sellerId}/stats")
+    public ResponseEntity<SellerStatsResponse> getSellerStats(@PathVariable Long sellerId) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.SELLER_LIST)
+                .body(productService.getSellerStats(sellerId));
+    }
+    
+    // Stream a seller's whole catalog as NDJSON (default) or CSV, in constant memory
+    @GetMapping("/seller/{sellerId}/export")
+    public ResponseEntity<?> exportSellerProducts(
+            @PathVariable Long sellerId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Unsupported export format: " + format);
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        MediaType contentType = exportFormat == ProductExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        String filename = "seller-" + sellerId + "-products." + (exportFormat == ProductExportService.Format.CSV ? "csv" : "ndjson");
+        
+        StreamingResponseBody body = out -> productExportService.exportSellerProducts(sellerId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .cacheControl(HttpCaching.SELLER_LIST)
+                .body(body);
     }
     
     // Create product (seller only)
@@ -113,6 +275,32 @@ public class ProductController {
         }
     }
     
+    // Bulk import (seller only): multipart "file" holding CSV with a header row, a JSON array or NDJSON
+    @PostMapping(value = "/seller/{sellerId}/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importProducts(
+            @PathVariable Long sellerId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format) {
+        try {
+            ProductImportService.Format importFormat;
+            if (format != null) {
+                importFormat = ProductImportService.Format.valueOf(format.toUpperCase());
+            } else {
+                String filename = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+                importFormat = filename.endsWith(".csv") ? ProductImportService.Format.CSV : ProductImportService.Format.JSON;
+            }
+            
+            try (InputStream in = file.getInputStream()) {
+                ProductImportResponse response = productImportService.importProducts(sellerId, importFormat, in);
+                return ResponseEntity.ok(response);
+            }
+        } catch (IOException | RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     // Update product (seller only)
     @PutMapping("/{productId}/seller/{sellerId}")
     public ResponseEntity<?> updateProduct(
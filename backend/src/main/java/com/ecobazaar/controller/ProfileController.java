@@ -2,6 +2,7 @@ package com.ecobazaar.controller;
 
 import com.ecobazaar.dto.ProfileResponse;
 import com.ecobazaar.dto.ProfileUpdateRequest;
+import com.ecobazaar.security.PasswordHashingBusyException;
 import com.ecobazaar.service.ProfileService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,6 +66,8 @@ public class ProfileController {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Password updated successfully");
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            return Overload.serviceUnavailable(e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -3,6 +3,7 @@ package com.ecobazaar.dto;
 public class AuthResponse {
     
     private String token;
+    private String refreshToken;
     private String type = "Bearer";
     private Long id;
     private String fullName;
@@ -44,6 +45,14 @@ public class AuthResponse {
         this.token = token;
     }
     
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+    
     public String getType() {
         return type;
     }
@@ -0,0 +1,25 @@
+package com.ecobazaar.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class CartBatchRequest {
+    
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 100, message = "A batch must not exceed 100 operations")
+    private List<@Valid CartOperationRequest> operations;
+    
+    // Constructors
+    public CartBatchRequest() {}
+    
+    public CartBatchRequest(List<CartOperationRequest> operations) {
+        this.operations = operations;
+    }
+    
+    // Getters and Setters
+    public List<CartOperationRequest> getOperations() { return operations; }
+    public void setOperations(List<CartOperationRequest> operations) { this.operations = operations; }
+}
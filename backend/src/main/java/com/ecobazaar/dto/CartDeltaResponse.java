@@ -0,0 +1,50 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// What one cart mutation changed: the lines it touched that are still in the cart,
+// the products it took out, and the cart totals and version afterwards
+public class CartDeltaResponse {
+    private Long id;
+    private Long userId;
+    private List<CartItemResponse> changedItems;
+    private List<Long> removedProductIds;
+    private BigDecimal subtotal;
+    private BigDecimal totalCarbonFootprint;
+    private Integer totalItems;
+    private Long version;
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public CartDeltaResponse() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public List<CartItemResponse> getChangedItems() { return changedItems; }
+    public void setChangedItems(List<CartItemResponse> changedItems) { this.changedItems = changedItems; }
+    
+    public List<Long> getRemovedProductIds() { return removedProductIds; }
+    public void setRemovedProductIds(List<Long> removedProductIds) { this.removedProductIds = removedProductIds; }
+    
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    
+    public BigDecimal getTotalCarbonFootprint() { return totalCarbonFootprint; }
+    public void setTotalCarbonFootprint(BigDecimal totalCarbonFootprint) { this.totalCarbonFootprint = totalCarbonFootprint; }
+    
+    public Integer getTotalItems() { return totalItems; }
+    public void setTotalItems(Integer totalItems) { this.totalItems = totalItems; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,27 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One row of the joined cart read: cart header plus one line (line fields are null for an empty cart)
+public record CartLineRow(
+        Long cartId,
+        LocalDateTime cartUpdatedAt,
+        Long cartSubtotalCents,
+        Long cartCarbonGrams,
+        Integer cartTotalItems,
+        Long cartVersion,
+        Long itemId,
+        Long productId,
+        String productName,
+        String productDescription,
+        BigDecimal productPrice,
+        String productImageUrl,
+        String productCategory,
+        String productSeller,
+        BigDecimal productRating,
+        Integer productReviews,
+        BigDecimal productCarbonFootprint,
+        Integer productStock,
+        Integer quantity) {
+}
@@ -0,0 +1,36 @@
+package com.ecobazaar.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+public class CartOperationRequest {
+    
+    @NotNull(message = "Operation is required")
+    @Pattern(regexp = "add|set|remove", message = "Operation must be add, set or remove")
+    private String op;
+    
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+    
+    // Required for add (at least 1) and set (0 or less removes the line)
+    private Integer quantity;
+    
+    // Constructors
+    public CartOperationRequest() {}
+    
+    public CartOperationRequest(String op, Long productId, Integer quantity) {
+        this.op = op;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+    
+    // Getters and Setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+    
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
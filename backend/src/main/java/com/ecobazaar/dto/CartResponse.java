@@ -11,6 +11,7 @@ public class CartResponse {
     private BigDecimal subtotal;
     private BigDecimal totalCarbonFootprint;
     private Integer totalItems;
+    private Long version;
     private LocalDateTime updatedAt;
     
     // Constructors
@@ -35,6 +36,9 @@ public class CartResponse {
     public Integer getTotalItems() { return totalItems; }
     public void setTotalItems(Integer totalItems) { this.totalItems = totalItems; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 }
@@ -0,0 +1,38 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+
+public class FacetCount {
+    private Long id;
+    private String label;
+    private BigDecimal min;
+    private BigDecimal max;
+    private long count;
+    
+    // Constructors
+    public FacetCount() {}
+    
+    public FacetCount(Long id, String label, BigDecimal min, BigDecimal max, long count) {
+        this.id = id;
+        this.label = label;
+        this.min = min;
+        this.max = max;
+        this.count = count;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+    
+    public BigDecimal getMin() { return min; }
+    public void setMin(BigDecimal min) { this.min = min; }
+    
+    public BigDecimal getMax() { return max; }
+    public void setMax(BigDecimal max) { this.max = max; }
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
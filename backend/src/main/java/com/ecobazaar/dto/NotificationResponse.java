@@ -0,0 +1,28 @@
+package com.ecobazaar.dto;
+
+import java.time.LocalDateTime;
+
+public class NotificationResponse {
+    private Long id;
+    private String message;
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public NotificationResponse() {}
+    
+    public NotificationResponse(Long id, String message, LocalDateTime createdAt) {
+        this.id = id;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,42 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+
+public class OrderItemResponse {
+    private Long productId;
+    private String productName;
+    private Long sellerId;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal unitCarbonFootprint;
+    private BigDecimal lineTotal;
+    private BigDecimal lineCarbonFootprint;
+    
+    // Constructors
+    public OrderItemResponse() {}
+    
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    
+    public Long getSellerId() { return sellerId; }
+    public void setSellerId(Long sellerId) { this.sellerId = sellerId; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public BigDecimal getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
+    
+    public BigDecimal getUnitCarbonFootprint() { return unitCarbonFootprint; }
+    public void setUnitCarbonFootprint(BigDecimal unitCarbonFootprint) { this.unitCarbonFootprint = unitCarbonFootprint; }
+    
+    public BigDecimal getLineTotal() { return lineTotal; }
+    public void setLineTotal(BigDecimal lineTotal) { this.lineTotal = lineTotal; }
+    
+    public BigDecimal getLineCarbonFootprint() { return lineCarbonFootprint; }
+    public void setLineCarbonFootprint(BigDecimal lineCarbonFootprint) { this.lineCarbonFootprint = lineCarbonFootprint; }
+}
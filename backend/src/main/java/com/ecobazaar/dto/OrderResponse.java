@@ -0,0 +1,44 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class OrderResponse {
+    private Long id;
+    private Long userId;
+    private List<OrderItemResponse> items;
+    private BigDecimal subtotal;
+    private BigDecimal totalCarbonFootprint;
+    private Integer totalItems;
+    private String fulfilmentStage;
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public OrderResponse() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public List<OrderItemResponse> getItems() { return items; }
+    public void setItems(List<OrderItemResponse> items) { this.items = items; }
+    
+    public BigDecimal getSubtotal() { return subtotal; }
+    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    
+    public BigDecimal getTotalCarbonFootprint() { return totalCarbonFootprint; }
+    public void setTotalCarbonFootprint(BigDecimal totalCarbonFootprint) { this.totalCarbonFootprint = totalCarbonFootprint; }
+    
+    public Integer getTotalItems() { return totalItems; }
+    public void setTotalItems(Integer totalItems) { this.totalItems = totalItems; }
+    
+    public String getFulfilmentStage() { return fulfilmentStage; }
+    public void setFulfilmentStage(String fulfilmentStage) { this.fulfilmentStage = fulfilmentStage; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
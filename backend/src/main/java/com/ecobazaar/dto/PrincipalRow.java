@@ -0,0 +1,13 @@
+package com.ecobazaar.dto;
+
+import com.ecobazaar.entity.Role;
+
+// One row of the principal read: the user's login fields plus one of their roles (null if they have none)
+public record PrincipalRow(
+        Long userId,
+        String email,
+        String fullName,
+        Boolean enabled,
+        String passwordHash,
+        Role.RoleName role) {
+}
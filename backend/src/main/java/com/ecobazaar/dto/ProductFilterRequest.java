@@ -0,0 +1,42 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+
+public class ProductFilterRequest {
+    private String query;
+    private Long categoryId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private BigDecimal minCarbon;
+    private BigDecimal maxCarbon;
+    private BigDecimal minRating;
+    private Boolean inStock;
+    
+    // Constructors
+    public ProductFilterRequest() {}
+    
+    // Getters and Setters
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+    
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+    
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+    
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+    
+    public BigDecimal getMinCarbon() { return minCarbon; }
+    public void setMinCarbon(BigDecimal minCarbon) { this.minCarbon = minCarbon; }
+    
+    public BigDecimal getMaxCarbon() { return maxCarbon; }
+    public void setMaxCarbon(BigDecimal maxCarbon) { this.maxCarbon = maxCarbon; }
+    
+    public BigDecimal getMinRating() { return minRating; }
+    public void setMinRating(BigDecimal minRating) { this.minRating = minRating; }
+    
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+}
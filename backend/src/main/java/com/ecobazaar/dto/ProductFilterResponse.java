@@ -0,0 +1,42 @@
+package com.ecobazaar.dto;
+
+import java.util.List;
+
+public class ProductFilterResponse {
+    private List<ProductResponse> products;
+    private int currentPage;
+    private long totalItems;
+    private int totalPages;
+    private List<FacetCount> categoryFacets;
+    private List<FacetCount> priceFacets;
+    private List<FacetCount> carbonFacets;
+    private List<FacetCount> ratingFacets;
+    
+    // Constructors
+    public ProductFilterResponse() {}
+    
+    // Getters and Setters
+    public List<ProductResponse> getProducts() { return products; }
+    public void setProducts(List<ProductResponse> products) { this.products = products; }
+    
+    public int getCurrentPage() { return currentPage; }
+    public void setCurrentPage(int currentPage) { this.currentPage = currentPage; }
+    
+    public long getTotalItems() { return totalItems; }
+    public void setTotalItems(long totalItems) { this.totalItems = totalItems; }
+    
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    
+    public List<FacetCount> getCategoryFacets() { return categoryFacets; }
+    public void setCategoryFacets(List<FacetCount> categoryFacets) { this.categoryFacets = categoryFacets; }
+    
+    public List<FacetCount> getPriceFacets() { return priceFacets; }
+    public void setPriceFacets(List<FacetCount> priceFacets) { this.priceFacets = priceFacets; }
+    
+    public List<FacetCount> getCarbonFacets() { return carbonFacets; }
+    public void setCarbonFacets(List<FacetCount> carbonFacets) { this.carbonFacets = carbonFacets; }
+    
+    public List<FacetCount> getRatingFacets() { return ratingFacets; }
+    public void setRatingFacets(List<FacetCount> ratingFacets) { this.ratingFacets = ratingFacets; }
+}
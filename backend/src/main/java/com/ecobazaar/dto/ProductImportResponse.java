@@ -0,0 +1,45 @@
+package com.ecobazaar.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResponse {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+    
+    public static class RowError {
+        private int row;
+        private String message;
+        
+        public RowError() {}
+        
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+        
+        public int getRow() { return row; }
+        public void setRow(int row) { this.row = row; }
+        
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+    
+    // Constructors
+    public ProductImportResponse() {}
+    
+    // Getters and Setters
+    public int getTotalRows() { return totalRows; }
+    public void setTotalRows(int totalRows) { this.totalRows = totalRows; }
+    
+    public int getImported() { return imported; }
+    public void setImported(int imported) { this.imported = imported; }
+    
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+    
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+}
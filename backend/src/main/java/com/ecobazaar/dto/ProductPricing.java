@@ -0,0 +1,7 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+
+// The product fields cart arithmetic needs, without the rest of the listing row
+public record ProductPricing(Long id, BigDecimal price, BigDecimal carbonFootprint, Boolean isActive) {
+}
@@ -24,6 +24,30 @@ public class ProductResponse {
     // Constructors
     public ProductResponse() {}
     
+    // Used by the listing queries in ProductRepository to project rows straight into the DTO
+    public ProductResponse(Long id, String name, String description, BigDecimal price, String imageUrl,
+                           String category, Long categoryId, String seller, Long sellerId,
+                           Integer stockQuantity, BigDecimal carbonFootprint, BigDecimal rating,
+                           Integer reviewsCount, Boolean isActive, LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.category = category;
+        this.categoryId = categoryId;
+        this.seller = seller;
+        this.sellerId = sellerId;
+        this.stockQuantity = stockQuantity;
+        this.carbonFootprint = carbonFootprint;
+        this.rating = rating;
+        this.reviewsCount = reviewsCount;
+        this.isActive = isActive;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -0,0 +1,28 @@
+package com.ecobazaar.dto;
+
+import java.util.List;
+
+public class ProductSliceResponse {
+    private List<ProductResponse> products;
+    private String nextCursor;
+    private boolean hasNext;
+    
+    // Constructors
+    public ProductSliceResponse() {}
+    
+    public ProductSliceResponse(List<ProductResponse> products, String nextCursor, boolean hasNext) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+    
+    // Getters and Setters
+    public List<ProductResponse> getProducts() { return products; }
+    public void setProducts(List<ProductResponse> products) { this.products = products; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
@@ -1,5 +1,6 @@
 package com.ecobazaar.dto;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class ProfileResponse {
@@ -12,6 +13,7 @@ public class ProfileResponse {
     private Boolean notificationOrders;
     private Boolean notificationPromotions;
     private Boolean notificationSustainability;
+    private BigDecimal purchasedCarbonFootprint;
     private LocalDateTime createdAt;
     
     // Constructors
@@ -47,4 +49,7 @@ public class ProfileResponse {
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public BigDecimal getPurchasedCarbonFootprint() { return purchasedCarbonFootprint; }
+    public void setPurchasedCarbonFootprint(BigDecimal purchasedCarbonFootprint) { this.purchasedCarbonFootprint = purchasedCarbonFootprint; }
 }
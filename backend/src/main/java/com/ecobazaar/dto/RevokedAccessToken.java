@@ -0,0 +1,10 @@
+package com.ecobazaar.dto;
+
+import java.time.LocalDateTime;
+
+// An access token revoked with its refresh token row, as polled into RevokedTokens
+public record RevokedAccessToken(
+        Long accessTokenId,
+        LocalDateTime accessExpiresAt,
+        LocalDateTime revokedAt
+) {}
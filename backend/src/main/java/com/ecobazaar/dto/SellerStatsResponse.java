@@ -0,0 +1,38 @@
+package com.ecobazaar.dto;
+
+import java.math.BigDecimal;
+
+public class SellerStatsResponse {
+    private Long sellerId;
+    private long activeProducts;
+    private long inactiveProducts;
+    private long totalStock;
+    private long lowStockProducts;
+    private BigDecimal averageRating;
+    private BigDecimal averageCarbonFootprint;
+    
+    // Constructors
+    public SellerStatsResponse() {}
+    
+    // Getters and Setters
+    public Long getSellerId() { return sellerId; }
+    public void setSellerId(Long sellerId) { this.sellerId = sellerId; }
+    
+    public long getActiveProducts() { return activeProducts; }
+    public void setActiveProducts(long activeProducts) { this.activeProducts = activeProducts; }
+    
+    public long getInactiveProducts() { return inactiveProducts; }
+    public void setInactiveProducts(long inactiveProducts) { this.inactiveProducts = inactiveProducts; }
+    
+    public long getTotalStock() { return totalStock; }
+    public void setTotalStock(long totalStock) { this.totalStock = totalStock; }
+    
+    public long getLowStockProducts() { return lowStockProducts; }
+    public void setLowStockProducts(long lowStockProducts) { this.lowStockProducts = lowStockProducts; }
+    
+    public BigDecimal getAverageRating() { return averageRating; }
+    public void setAverageRating(BigDecimal averageRating) { this.averageRating = averageRating; }
+    
+    public BigDecimal getAverageCarbonFootprint() { return averageCarbonFootprint; }
+    public void setAverageCarbonFootprint(BigDecimal averageCarbonFootprint) { this.averageCarbonFootprint = averageCarbonFootprint; }
+}
@@ -6,7 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "cart")
+@Table(name = "cart", indexes = @Index(name = "idx_cart_updated_at", columnList = "updated_at"))
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,6 +19,20 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
     
+    // Running totals kept in step with the lines: cents, grams CO2e and units
+    @Column(name = "subtotal_cents", nullable = false)
+    private Long subtotalCents = 0L;
+    
+    @Column(name = "carbon_grams", nullable = false)
+    private Long carbonGrams = 0L;
+    
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems = 0;
+    
+    // Bumped by every change to the lines or totals, so clients can spot missed deltas
+    @Column(nullable = false)
+    private Long version = 0L;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
     
@@ -58,6 +72,18 @@ public class Cart {
     public List<CartItem> getCartItems() { return cartItems; }
     public void setCartItems(List<CartItem> cartItems) { this.cartItems = cartItems; }
     
+    public Long getSubtotalCents() { return subtotalCents; }
+    public void setSubtotalCents(Long subtotalCents) { this.subtotalCents = subtotalCents; }
+    
+    public Long getCarbonGrams() { return carbonGrams; }
+    public void setCarbonGrams(Long carbonGrams) { this.carbonGrams = carbonGrams; }
+    
+    public Integer getTotalItems() { return totalItems; }
+    public void setTotalItems(Integer totalItems) { this.totalItems = totalItems; }
+    
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -0,0 +1,64 @@
+package com.ecobazaar.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// A placed order; written once at checkout and never updated (fulfilment progress lives in FulfilmentTask)
+@Entity
+@Immutable
+@Table(name = "orders", indexes = @Index(name = "idx_orders_user", columnList = "user_id"))
+public class Order {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @OneToMany(mappedBy = "order")
+    @OrderBy("id")
+    private List<OrderItem> items = new ArrayList<>();
+    
+    // Totals as they were in the cart: cents, grams CO2e and units
+    @Column(name = "subtotal_cents", nullable = false)
+    private Long subtotalCents;
+    
+    @Column(name = "carbon_grams", nullable = false)
+    private Long carbonGrams;
+    
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Constructors
+    public Order() {}
+    
+    public Order(User user, Long subtotalCents, Long carbonGrams, Integer totalItems) {
+        this.user = user;
+        this.subtotalCents = subtotalCents;
+        this.carbonGrams = carbonGrams;
+        this.totalItems = totalItems;
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    
+    public User getUser() { return user; }
+    
+    public List<OrderItem> getItems() { return items; }
+    
+    public Long getSubtotalCents() { return subtotalCents; }
+    
+    public Long getCarbonGrams() { return carbonGrams; }
+    
+    public Integer getTotalItems() { return totalItems; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
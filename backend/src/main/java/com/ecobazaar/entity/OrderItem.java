@@ -0,0 +1,57 @@
+package com.ecobazaar.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+// One line of an order, with the product as it was sold so later product edits do not change it
+@Entity
+@Immutable
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order", columnList = "order_id"))
+public class OrderItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @Column(name = "product_name", nullable = false, length = 200)
+    private String productName;
+    
+    @Column(name = "seller_id", nullable = false)
+    private Long sellerId;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    // Unit price in cents and unit footprint in grams CO2e at checkout
+    @Column(name = "unit_cents", nullable = false)
+    private Long unitCents;
+    
+    @Column(name = "unit_grams", nullable = false)
+    private Long unitGrams;
+    
+    // Constructors
+    public OrderItem() {}
+    
+    // Getters
+    public Long getId() { return id; }
+    
+    public Order getOrder() { return order; }
+    
+    public Long getProductId() { return productId; }
+    
+    public String getProductName() { return productName; }
+    
+    public Long getSellerId() { return sellerId; }
+    
+    public Integer getQuantity() { return quantity; }
+    
+    public Long getUnitCents() { return unitCents; }
+    
+    public Long getUnitGrams() { return unitGrams; }
+}
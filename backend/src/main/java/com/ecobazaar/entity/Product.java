@@ -5,7 +5,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "idx_products_updated_at", columnList = "updated_at"))
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,7 +31,8 @@ public class Product {
     @JoinColumn(name = "seller_id", nullable = false)
     private User seller;
     
-    @Column(name = "stock_quantity")
+    // Written on insert only; updates go through ProductRepository.adjustStock as deltas
+    @Column(name = "stock_quantity", updatable = false)
     private Integer stockQuantity = 0;
     
     @Column(name = "carbon_footprint", precision = 5, scale = 2)
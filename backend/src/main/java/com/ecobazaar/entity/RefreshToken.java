@@ -0,0 +1,90 @@
+package com.ecobazaar.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One refresh token of a login session; only its SHA-256 is stored. Each use rotates it
+// into a new row of the same family, and reusing a rotated token revokes the family.
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_user", columnList = "user_id"),
+        @Index(name = "idx_refresh_tokens_revoked", columnList = "revoked_at")
+})
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+    
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+    
+    // The role the session signed in with
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Role.RoleName role;
+    
+    // jti and expiry of the access token issued alongside, so revoking the row can revoke it too
+    @Column(name = "access_token_id", nullable = false)
+    private Long accessTokenId;
+    
+    @Column(name = "access_expires_at", nullable = false)
+    private LocalDateTime accessExpiresAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Set when the token was exchanged for its successor
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+    
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Constructors
+    public RefreshToken() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+    
+    public String getFamilyId() { return familyId; }
+    public void setFamilyId(String familyId) { this.familyId = familyId; }
+    
+    public Role.RoleName getRole() { return role; }
+    public void setRole(Role.RoleName role) { this.role = role; }
+    
+    public Long getAccessTokenId() { return accessTokenId; }
+    public void setAccessTokenId(Long accessTokenId) { this.accessTokenId = accessTokenId; }
+    
+    public LocalDateTime getAccessExpiresAt() { return accessExpiresAt; }
+    public void setAccessExpiresAt(LocalDateTime accessExpiresAt) { this.accessExpiresAt = accessExpiresAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public LocalDateTime getRotatedAt() { return rotatedAt; }
+    public void setRotatedAt(LocalDateTime rotatedAt) { this.rotatedAt = rotatedAt; }
+    
+    public LocalDateTime getRevokedAt() { return revokedAt; }
+    public void setRevokedAt(LocalDateTime revokedAt) { this.revokedAt = revokedAt; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
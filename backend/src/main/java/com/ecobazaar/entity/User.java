@@ -27,7 +27,8 @@ public class User {
     @Column(name = "password_hash", nullable = false)
     private String passwordHash;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    // Lazy: login reads roles through PrincipalCache, and profile, cart and product paths never need them
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
         name = "user_roles",
         joinColumns = @JoinColumn(name = "user_id"),
@@ -58,20 +59,22 @@ public class User {
     private Boolean notificationSustainability = true;
     // ---------------------------------
 
+    // Lifetime grams CO2e of everything the user has ordered; only order fulfilment adds to it
+    @Column(name = "purchased_carbon_grams", nullable = false, updatable = false)
+    private Long purchasedCarbonGrams = 0L;
+
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
 
-    // Helper methods
+    // Helper methods; User owns the association, so Role.users (every user with the role) is left unloaded
     public void addRole(Role role) {
         this.roles.add(role);
-        role.getUsers().add(this);
     }
 
     public void removeRole(Role role) {
         this.roles.remove(role);
-        role.getUsers().remove(this);
     }
 
     public boolean hasRole(Role.RoleName roleName) {
@@ -121,4 +124,7 @@ public class User {
 
     public Boolean getNotificationSustainability() { return notificationSustainability; }
     public void setNotificationSustainability(Boolean notificationSustainability) { this.notificationSustainability = notificationSustainability; }
+
+    public Long getPurchasedCarbonGrams() { return purchasedCarbonGrams; }
+    public void setPurchasedCarbonGrams(Long purchasedCarbonGrams) { this.purchasedCarbonGrams = purchasedCarbonGrams; }
 }
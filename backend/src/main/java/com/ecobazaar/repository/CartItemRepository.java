@@ -7,6 +7,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,6 +17,20 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
     
+    List<CartItem> findByCartIdAndProductIdIn(Long cartId, Collection<Long> productIds);
+    
+    // Insert-or-increment on the unique (cart_id, product_id) key in a single statement.
+    // Affects no rows when the user has no cart yet or the product is missing or inactive.
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (cart_id, product_id, quantity, created_at, updated_at) "
+            + "SELECT c.id, p.id, :quantity, :now, :now FROM cart c "
+            + "JOIN products p ON p.id = :productId AND p.is_active = true "
+            + "WHERE c.user_id = :userId "
+            + "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity, updated_at = :now",
+            nativeQuery = true)
+    int upsertQuantity(@Param("userId") Long userId, @Param("productId") Long productId,
+                       @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.product.id = :productId")
     void deleteByCartIdAndProductId(@Param("cartId") Long cartId, @Param("productId") Long productId);
@@ -21,4 +38,8 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
 }
@@ -1,11 +1,21 @@
 package com.ecobazaar.repository;
 
+import com.ecobazaar.dto.CartLineRow;
 import com.ecobazaar.entity.Cart;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,8 +23,62 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     
     Optional<Cart> findByUserId(Long userId);
     
-    @Query("SELECT c FROM Cart c JOIN FETCH c.cartItems ci JOIN FETCH ci.product p LEFT JOIN FETCH p.category WHERE c.user.id = :userId")
-    Optional<Cart> findByUserIdWithItems(@Param("userId") Long userId);
+    String CART_LINE_SELECT = "SELECT new com.ecobazaar.dto.CartLineRow(c.id, c.updatedAt, c.subtotalCents, "
+            + "c.carbonGrams, c.totalItems, c.version, ci.id, p.id, p.name, p.description, p.price, p.imageUrl, "
+            + "cat.name, s.fullName, p.rating, p.reviewsCount, p.carbonFootprint, p.stockQuantity, ci.quantity) "
+            + "FROM Cart c ";
+    
+    String CART_LINE_JOINS = "LEFT JOIN ci.product p LEFT JOIN p.category cat LEFT JOIN p.seller s "
+            + "WHERE c.user.id = :userId ORDER BY ci.id";
+    
+    // Cart header and all lines with their product, category and seller in one query;
+    // an existing cart without items still yields one row with null line fields
+    @Query(CART_LINE_SELECT + "LEFT JOIN c.cartItems ci " + CART_LINE_JOINS)
+    List<CartLineRow> findCartLines(@Param("userId") Long userId);
+    
+    // Same, restricted to the lines of the given products (the header row is always returned)
+    @Query(CART_LINE_SELECT + "LEFT JOIN c.cartItems ci ON ci.product.id IN :productIds " + CART_LINE_JOINS)
+    List<CartLineRow> findCartLines(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+    
+    // Move a user's running totals by delta units of one product, priced from the product row
+    @Modifying
+    @Query(value = "UPDATE cart SET "
+            + "subtotal_cents = subtotal_cents + :delta * (SELECT ROUND(p.price * 100) FROM products p WHERE p.id = :productId), "
+            + "carbon_grams = carbon_grams + :delta * (SELECT ROUND(p.carbon_footprint * 1000) FROM products p WHERE p.id = :productId), "
+            + "total_items = total_items + :delta, version = version + 1, updated_at = :now "
+            + "WHERE user_id = :userId",
+            nativeQuery = true)
+    int adjustTotals(@Param("userId") Long userId, @Param("productId") Long productId,
+                     @Param("delta") int delta, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Cart c SET c.subtotalCents = 0, c.carbonGrams = 0, c.totalItems = 0, "
+            + "c.version = c.version + 1, c.updatedAt = :now WHERE c.user.id = :userId")
+    int resetTotals(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    // Re-price every cart holding a product after its price or footprint changed
+    @Modifying
+    @Query(value = "UPDATE cart SET "
+            + "subtotal_cents = subtotal_cents + :centsDelta * (SELECT ci.quantity FROM cart_items ci "
+            + "WHERE ci.cart_id = cart.id AND ci.product_id = :productId), "
+            + "carbon_grams = carbon_grams + :gramsDelta * (SELECT ci.quantity FROM cart_items ci "
+            + "WHERE ci.cart_id = cart.id AND ci.product_id = :productId), "
+            + "version = version + 1 "
+            + "WHERE id IN (SELECT ci.cart_id FROM cart_items ci WHERE ci.product_id = :productId)",
+            nativeQuery = true)
+    int repriceProduct(@Param("productId") Long productId, @Param("centsDelta") long centsDelta,
+                       @Param("gramsDelta") long gramsDelta);
     
     void deleteByUserId(Long userId);
+    
+    // Claim the next chunk of carts untouched since the cutoff, in id order after afterId;
+    // carts locked by a write or by another node's sweep are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = FulfilmentTaskRepository.SKIP_LOCKED))
+    @Query("SELECT c FROM Cart c WHERE c.updatedAt < :cutoff AND c.id > :afterId ORDER BY c.id")
+    List<Cart> claimIdle(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id IN :cartIds")
+    int deleteByIdIn(@Param("cartIds") Collection<Long> cartIds);
 }
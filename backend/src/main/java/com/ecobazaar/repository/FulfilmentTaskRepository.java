@@ -0,0 +1,49 @@
+package com.ecobazaar.repository;
+
+import com.ecobazaar.entity.FulfilmentTask;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FulfilmentTaskRepository extends JpaRepository<FulfilmentTask, Long> {
+    
+    // Lock timeout -2 is Hibernate's SKIP LOCKED: tasks another node has claimed are passed over
+    String SKIP_LOCKED = "-2";
+    
+    // Claim due tasks of a stage for this transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT t FROM FulfilmentTask t WHERE t.stage = :stage AND t.nextAttemptAt <= :now ORDER BY t.id")
+    List<FulfilmentTask> claimDue(@Param("stage") FulfilmentTask.Stage stage, @Param("now") LocalDateTime now,
+                                  Pageable pageable);
+    
+    // Claim one task if it is still at the stage
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT t FROM FulfilmentTask t WHERE t.id = :id AND t.stage = :stage")
+    Optional<FulfilmentTask> claim(@Param("id") Long id, @Param("stage") FulfilmentTask.Stage stage);
+    
+    // Move a whole batch on to the next stage
+    @Modifying
+    @Query("UPDATE FulfilmentTask t SET t.stage = :next, t.attempts = 0, t.lastError = null, t.updatedAt = :now "
+            + "WHERE t.id IN :ids")
+    int advance(@Param("ids") Collection<Long> ids, @Param("next") FulfilmentTask.Stage next,
+                @Param("now") LocalDateTime now);
+    
+    List<FulfilmentTask> findByOrderIdIn(Collection<Long> orderIds);
+    
+    long countByStage(FulfilmentTask.Stage stage);
+}
@@ -0,0 +1,13 @@
+package com.ecobazaar.repository;
+
+import com.ecobazaar.entity.Notification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+    
+    List<Notification> findTop50ByUserIdOrderByIdDesc(Long userId);
+}
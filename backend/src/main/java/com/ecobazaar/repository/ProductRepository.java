@@ -1,31 +1,135 @@
 package com.ecobazaar.repository;
 
+import com.ecobazaar.dto.ProductPricing;
+import com.ecobazaar.dto.ProductResponse;
 import com.ecobazaar.entity.Product;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    
+    // Listing read model: one joined query projected straight into ProductResponse,
+    // so category and seller are never lazily loaded row by row
+    String LISTING_SELECT = "SELECT new com.ecobazaar.dto.ProductResponse("
+            + "p.id, p.name, p.description, p.price, p.imageUrl, c.name, c.id, s.fullName, s.id, "
+            + "p.stockQuantity, p.carbonFootprint, p.rating, p.reviewsCount, p.isActive, p.createdAt, p.updatedAt) "
+            + "FROM Product p LEFT JOIN p.category c JOIN p.seller s ";
+    
+    int EXPORT_FETCH_SIZE = 500;
     
     // Find all active products
     Page<Product> findByIsActiveTrue(Pageable pageable);
     
+    @Query(value = LISTING_SELECT + "WHERE p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true")
+    Page<ProductResponse> findActiveListing(Pageable pageable);
+    
     // Find products by seller
     List<Product> findBySellerIdAndIsActiveTrue(Long sellerId);
     List<Product> findBySellerId(Long sellerId);
     
+    @Query(LISTING_SELECT + "WHERE s.id = :sellerId")
+    List<ProductResponse> findListingBySellerId(@Param("sellerId") Long sellerId);
+    
+    @Query(value = LISTING_SELECT + "WHERE s.id = :sellerId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.seller.id = :sellerId")
+    Page<ProductResponse> findListingBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
+    
+    // Forward-only cursor over a seller's listing rows for exports; must be consumed inside a transaction
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query(LISTING_SELECT + "WHERE s.id = :sellerId ORDER BY p.id")
+    Stream<ProductResponse> streamListingBySellerId(@Param("sellerId") Long sellerId);
+    
     // Find products by category
     Page<Product> findByCategoryIdAndIsActiveTrue(Long categoryId, Pageable pageable);
     
+    @Query(value = LISTING_SELECT + "WHERE p.isActive = true AND c.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId")
+    Page<ProductResponse> findActiveListingByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+    
     // Search products by name
     Page<Product> findByNameContainingIgnoreCaseAndIsActiveTrue(String name, Pageable pageable);
     
+    @Query(value = LISTING_SELECT + "WHERE p.isActive = true AND LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<ProductResponse> searchActiveListingByName(@Param("name") String name, Pageable pageable);
+    
+    // Listing rows for a set of ids (order is not preserved)
+    @Query(LISTING_SELECT + "WHERE p.id IN :ids")
+    List<ProductResponse> findListingByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Price, footprint and status for a set of ids, for cart arithmetic
+    @Query("SELECT new com.ecobazaar.dto.ProductPricing(p.id, p.price, p.carbonFootprint, p.isActive) "
+            + "FROM Product p WHERE p.id IN :ids")
+    List<ProductPricing> findPricingByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(LISTING_SELECT + "WHERE p.id = :id")
+    Optional<ProductResponse> findListingById(@Param("id") Long id);
+    
+    // Per-seller totals: [sellerId, active, inactive, stock, lowStock, ratingSum, carbonSum];
+    // stock, rating and carbon only count active products
+    String SELLER_TOTALS_SELECT = "SELECT p.seller.id, "
+            + "SUM(CASE WHEN p.isActive = true THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN p.isActive = true THEN 0 ELSE 1 END), "
+            + "SUM(CASE WHEN p.isActive = true THEN COALESCE(p.stockQuantity, 0) ELSE 0 END), "
+            + "SUM(CASE WHEN p.isActive = true AND COALESCE(p.stockQuantity, 0) <= :lowStockThreshold THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN p.isActive = true THEN COALESCE(p.rating, 0) ELSE 0 END), "
+            + "SUM(CASE WHEN p.isActive = true THEN COALESCE(p.carbonFootprint, 0) ELSE 0 END) "
+            + "FROM Product p ";
+    
+    @Query(SELLER_TOTALS_SELECT + "WHERE p.seller.id = :sellerId GROUP BY p.seller.id")
+    List<Object[]> findSellerTotals(@Param("sellerId") Long sellerId, @Param("lowStockThreshold") int lowStockThreshold);
+    
+    @Query(SELLER_TOTALS_SELECT + "GROUP BY p.seller.id")
+    List<Object[]> findAllSellerTotals(@Param("lowStockThreshold") int lowStockThreshold);
+    
+    // Row count and latest write time, which together move with every product write (CatalogVersion)
+    @Query("SELECT COUNT(p), MAX(p.updatedAt) FROM Product p")
+    List<Object[]> findCatalogVersion();
+    
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Product p")
+    Long findMaxId();
+    
+    // Current stock, for loading a product's reservation counter
+    @Query("SELECT COALESCE(p.stockQuantity, 0) FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") Long id);
+    
+    // Move stock by a delta; the only way stock_quantity is updated (see StockReservations).
+    // Also stamps updatedAt, which the product detail ETag is built from.
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = COALESCE(p.stockQuantity, 0) + :delta, p.updatedAt = :updatedAt "
+            + "WHERE p.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    // Keyset walk over active products by id (index rebuilds; unaffected by rows changing mid-walk)
+    List<Product> findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // Keyset walk over a seller's products by id (used to index freshly imported rows)
+    Slice<Product> findBySellerIdAndIdGreaterThanOrderByIdAsc(Long sellerId, Long id, Pageable pageable);
+    
     // Find by seller and product ID
     @Query("SELECT p FROM Product p WHERE p.id = :productId AND p.seller.id = :sellerId")
     Product findByIdAndSellerId(@Param("productId") Long productId, @Param("sellerId") Long sellerId);
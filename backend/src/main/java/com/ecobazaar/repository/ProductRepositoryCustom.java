@@ -0,0 +1,24 @@
+package com.ecobazaar.repository;
+
+import com.ecobazaar.dto.ProductResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    
+    // Keyset pages sort and compare nullable sort columns as COALESCE(column, value), so NULL rows
+    // have a definite place in the order and cursors never carry a null key
+    Map<String, Object> NULL_SORT_KEYS = Map.of(
+            "carbonFootprint", BigDecimal.ZERO,
+            "rating", BigDecimal.ZERO,
+            "createdAt", LocalDateTime.of(1970, 1, 1, 0, 0),
+            "updatedAt", LocalDateTime.of(1970, 1, 1, 0, 0));
+    
+    // Keyset page of active listing rows: rows strictly after (afterKey, afterId) in the given order.
+    // Passing a null afterId starts from the beginning. No count query is issued.
+    List<ProductResponse> findActiveListingAfter(Long categoryId, String sortBy, boolean descending,
+                                                 Object afterKey, Long afterId, int limit);
+}
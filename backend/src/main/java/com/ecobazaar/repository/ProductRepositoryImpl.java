@@ -0,0 +1,77 @@
+package com.ecobazaar.repository;
+
+import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.entity.Category;
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<ProductResponse> findActiveListingAfter(Long categoryId, String sortBy, boolean descending,
+                                                        Object afterKey, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductResponse> query = cb.createQuery(ProductResponse.class);
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> category = product.join("category", JoinType.LEFT);
+        Join<Product, User> seller = product.join("seller");
+        
+        Path<Long> id = product.get("id");
+        Path<Comparable> column = product.get(sortBy);
+        Object ifNull = NULL_SORT_KEYS.get(sortBy);
+        Expression<Comparable> key = ifNull == null ? column : cb.coalesce(column, (Comparable) ifNull);
+        
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isTrue(product.get("isActive")));
+        if (categoryId != null) {
+            predicates.add(cb.equal(category.get("id"), categoryId));
+        }
+        
+        if (afterId != null) {
+            if ("id".equals(sortBy)) {
+                predicates.add(descending ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId));
+            } else {
+                // (key, id) > (afterKey, afterId) written out so every database can use the index
+                Comparable after = (Comparable) afterKey;
+                Predicate keyBeyond = descending ? cb.lessThan(key, after) : cb.greaterThan(key, after);
+                Predicate idBeyond = descending ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId);
+                predicates.add(cb.or(keyBeyond, cb.and(cb.equal(key, after), idBeyond)));
+            }
+        }
+        
+        // Same shape as ProductRepository.LISTING_SELECT
+        query.select(cb.construct(ProductResponse.class,
+                        product.get("id"), product.get("name"), product.get("description"),
+                        product.get("price"), product.get("imageUrl"),
+                        category.get("name"), category.get("id"),
+                        seller.get("fullName"), seller.get("id"),
+                        product.get("stockQuantity"), product.get("carbonFootprint"), product.get("rating"),
+                        product.get("reviewsCount"), product.get("isActive"),
+                        product.get("createdAt"), product.get("updatedAt")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(descending
+                        ? List.of(cb.desc(key), cb.desc(id))
+                        : List.of(cb.asc(key), cb.asc(id)));
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecobazaar.repository;
+
+import com.ecobazaar.dto.RevokedAccessToken;
+import com.ecobazaar.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    
+    // Locked, so two concurrent refreshes with the same token cannot both rotate it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t JOIN FETCH t.user WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findForRotation(@Param("tokenHash") String tokenHash);
+    
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+    
+    @Query("SELECT t FROM RefreshToken t WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    List<RefreshToken> findLiveByFamilyId(@Param("familyId") String familyId);
+    
+    @Query("SELECT t FROM RefreshToken t WHERE t.user.id = :userId AND t.revokedAt IS NULL")
+    List<RefreshToken> findLiveByUserId(@Param("userId") Long userId);
+    
+    // Access tokens revoked since the given time that have not expired yet
+    @Query("SELECT new com.ecobazaar.dto.RevokedAccessToken(t.accessTokenId, t.accessExpiresAt, t.revokedAt) "
+            + "FROM RefreshToken t WHERE t.revokedAt >= :since AND t.accessExpiresAt > :now")
+    List<RevokedAccessToken> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpiredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,12 +1,17 @@
 package com.ecobazaar.repository;
 
+import com.ecobazaar.dto.PrincipalRow;
 import com.ecobazaar.entity.Role;
 import com.ecobazaar.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +27,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r.name = :roleName")
     List<User> findUsersByRole(@Param("roleName") Role.RoleName roleName);
     
-    @Query("SELECT u FROM User u JOIN u.roles r WHERE u.email = :email AND r.name = :roleName AND u.enabled = true")
-    Optional<User> findByEmailAndRole(@Param("email") String email, @Param("roleName") Role.RoleName roleName);
+    // Everything login needs in one read, one row per role; backs PrincipalCache
+    @Query("SELECT new com.ecobazaar.dto.PrincipalRow(u.id, u.email, u.fullName, u.enabled, u.passwordHash, r.name) "
+            + "FROM User u LEFT JOIN u.roles r WHERE u.email = :email")
+    List<PrincipalRow> findPrincipalRows(@Param("email") String email);
+
+    // Which of the given users want order notifications
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids AND u.notificationOrders = true")
+    List<Long> findIdsWithOrderNotifications(@Param("ids") Collection<Long> ids);
+    
+    // Swap the password hash only if it is still the one that was verified; runs in its own transaction
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash, u.updatedAt = :now "
+            + "WHERE u.id = :id AND u.passwordHash = :currentHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("currentHash") String currentHash,
+                           @Param("newHash") String newHash, @Param("now") LocalDateTime now);
 }
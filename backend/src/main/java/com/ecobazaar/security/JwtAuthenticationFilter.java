@@ -0,0 +1,68 @@
+package com.ecobazaar.security;
+
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates requests carrying "Authorization: Bearer &lt;token&gt;". The token is
+ * verified once (or found in the VerifiedTokenCache), checked against RevokedTokens,
+ * and its JwtPrincipal becomes the request's authentication. A missing or invalid token leaves the request anonymous;
+ * the authorization rules in SecurityConfig then decide whether it may proceed.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final JwtUtils jwtUtils;
+    private final VerifiedTokenCache tokenCache;
+    private final RevokedTokens revokedTokens;
+    
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, VerifiedTokenCache tokenCache, RevokedTokens revokedTokens) {
+        this.jwtUtils = jwtUtils;
+        this.tokenCache = tokenCache;
+        this.revokedTokens = revokedTokens;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            authenticate(header.substring(BEARER_PREFIX.length()).trim());
+        }
+        chain.doFilter(request, response);
+    }
+    
+    private void authenticate(String token) {
+        JwtPrincipal principal;
+        try {
+            principal = tokenCache.get(token, jwtUtils::parsePrincipal);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Ignoring invalid JWT token: {}", e.getMessage());
+            return;
+        }
+        if (revokedTokens.isRevoked(principal.tokenId())) {
+            log.debug("Ignoring revoked JWT token for {}", principal.email());
+            return;
+        }
+        
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+        SecurityContextHolder.setContext(context);
+    }
+}
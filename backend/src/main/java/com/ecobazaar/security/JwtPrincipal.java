@@ -0,0 +1,28 @@
+package com.ecobazaar.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * What a verified access token says about the caller. Immutable, so one instance can
+ * be cached and shared by every request that presents the same token. tokenId is the
+ * token's jti, checked against RevokedTokens on every request.
+ */
+public record JwtPrincipal(String email, String role, long tokenId, long expiresAtMillis,
+                           List<GrantedAuthority> authorities) {
+    
+    public JwtPrincipal(String email, String role, long tokenId, long expiresAtMillis) {
+        this(email, role, tokenId, expiresAtMillis,
+                role == null ? List.of() : List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
+    
+    public JwtPrincipal {
+        authorities = List.copyOf(authorities);
+    }
+    
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -2,6 +2,7 @@ package com.ecobazaar.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,47 +20,65 @@ public class JwtUtils {
     @Value("${jwt.secret}")
     private String jwtSecret;
     
+    // Access token lifetime; kept short because refresh tokens carry the session
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    // Built once: the key and parser are immutable and safe to share between threads
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
     
-    public String generateJwtToken(String email, String role) {
+    // tokenId becomes the jti claim, the handle by which the token can be revoked
+    public String generateJwtToken(String email, String role, long tokenId) {
         return Jwts.builder()
+                .setId(Long.toString(tokenId))
                 .setSubject(email)
                 .claim("role", role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
+    // Verify the token once and read everything a request needs from it; throws JwtException if invalid
+    public JwtPrincipal parsePrincipal(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiration = claims.getExpiration();
+        if (expiration == null || claims.getId() == null) {
+            throw new UnsupportedJwtException("JWT token has no expiration or id");
+        }
+        long tokenId;
+        try {
+            tokenId = Long.parseLong(claims.getId());
+        } catch (NumberFormatException e) {
+            throw new MalformedJwtException("JWT token id is not a number");
+        }
+        return new JwtPrincipal(claims.getSubject(), claims.get("role", String.class), tokenId, expiration.getTime());
+    }
+    
+    public long getExpirationMs() {
+        return jwtExpirationMs;
+    }
+    
     public String getEmailFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parsePrincipal(token).email();
     }
     
     public String getRoleFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
+        return parsePrincipal(token).role();
     }
     
     public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
+            parsePrincipal(authToken);
             return true;
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
@@ -0,0 +1,47 @@
+package com.ecobazaar.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Lets a request through only when the signed-in caller is the user its path names,
+ * as {userId} or {sellerId}, or an admin. The access token carries the caller's email,
+ * so their user id is looked up in PrincipalCache.
+ */
+@Component
+public class OwnerAuthorization implements AuthorizationManager<RequestAuthorizationContext> {
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Map<String, String> variables = context.getVariables();
+        String owner = variables.containsKey("userId") ? variables.get("userId") : variables.get("sellerId");
+        try {
+            return new AuthorizationDecision(owner != null && allows(authentication.get(), Long.valueOf(owner)));
+        } catch (NumberFormatException e) {
+            return new AuthorizationDecision(false);
+        }
+    }
+
+    // Whether the caller may act for the given user
+    public boolean allows(Authentication authentication, Long userId) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtPrincipal principal)) {
+            return false;
+        }
+        if ("ADMIN".equals(principal.role())) {
+            return true;
+        }
+        return principalCache.get(principal.email())
+                .map(account -> account.userId().equals(userId))
+                .orElse(false);
+    }
+}
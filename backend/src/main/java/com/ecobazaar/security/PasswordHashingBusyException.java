@@ -0,0 +1,19 @@
+package com.ecobazaar.security;
+
+/**
+ * Thrown when the password hashing queue is full; the request should be answered
+ * with 503 and a Retry-After of retryAfterSeconds.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    
+    private final int retryAfterSeconds;
+    
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super("Too many sign-in requests right now, please try again shortly");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
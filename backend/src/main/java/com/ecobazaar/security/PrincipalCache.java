@@ -0,0 +1,147 @@
+package com.ecobazaar.security;
+
+import com.ecobazaar.dto.PrincipalRow;
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What login and refresh need to know about a user, keyed by email: id, name, enabled
+ * flag, roles and password hash. Loaded with one users/user_roles read and then served
+ * from memory, so a repeat login costs no query before the password check.
+ *
+ * Writers call invalidate(email) when any of these fields change; inside a transaction
+ * the entry is dropped again after commit. A load that overlaps an invalidation is
+ * returned but not cached, so a stale read cannot outlive the change. Entries also
+ * expire after auth.principal-cache.ttl-ms, which bounds how long a change made on
+ * another node goes unseen here. Unknown emails are not cached.
+ */
+@Component
+public class PrincipalCache {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${auth.principal-cache.max-size:10000}")
+    private int maxSize;
+    
+    @Value("${auth.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+    
+    private final Map<String, Account> entries = new ConcurrentHashMap<>();
+    
+    // Bumped by every invalidation; a load only caches its result if this did not move meanwhile
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    // A user's login fields as last read from the database
+    public record Account(Long userId, String email, String fullName, boolean enabled,
+                          Set<Role.RoleName> roles, String passwordHash, long loadedAtMillis) {
+        
+        public Account {
+            roles = Set.copyOf(roles);
+        }
+        
+        public boolean hasRole(Role.RoleName role) {
+            return roles.contains(role);
+        }
+    }
+    
+    public Optional<Account> get(String email) {
+        String key = key(email);
+        long now = System.currentTimeMillis();
+        
+        Account cached = entries.get(key);
+        if (cached != null) {
+            if (now - cached.loadedAtMillis() < ttlMs) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            entries.remove(key, cached);
+        }
+        
+        misses.increment();
+        long generation = invalidations.get();
+        Account account = load(email, now);
+        if (account != null && invalidations.get() == generation) {
+            if (entries.size() >= maxSize) {
+                entries.values().removeIf(entry -> now - entry.loadedAtMillis() >= ttlMs);
+            }
+            if (entries.size() < maxSize) {
+                entries.put(key, account);
+            }
+        }
+        return Optional.ofNullable(account);
+    }
+    
+    // Drop the user's entry now and, if a transaction is running, again once it commits
+    public void invalidate(String email) {
+        String key = key(email);
+        evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(key);
+                }
+            });
+        }
+    }
+    
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+    
+    private void evict(String key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+    
+    private Account load(String email, long now) {
+        List<PrincipalRow> rows = userRepository.findPrincipalRows(email);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Set<Role.RoleName> roles = EnumSet.noneOf(Role.RoleName.class);
+        for (PrincipalRow row : rows) {
+            if (row.role() != null) {
+                roles.add(row.role());
+            }
+        }
+        PrincipalRow user = rows.get(0);
+        return new Account(user.userId(), user.email(), user.fullName(), Boolean.TRUE.equals(user.enabled()),
+                roles, user.passwordHash(), now);
+    }
+    
+    // Emails are matched case-insensitively by the database, so the cache does the same
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecobazaar.security;
+
+/**
+ * Thrown when a client has used up its rate limit; the request should be answered
+ * with 429 and a Retry-After of retryAfterSeconds.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        super("Too many requests, please try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecobazaar.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the IP and account rate limits before a request reaches a controller:
+ * POST /auth/login and /auth/register by client IP, and cart writes by IP and by
+ * account. Runs after JwtAuthenticationFilter, so a signed-in caller's cart writes
+ * count against their email and anyone else's against the cart's user id. A
+ * rejected request is answered here with 429 and Retry-After.
+ *
+ * The client IP is the remote address; behind a proxy, set
+ * server.forward-headers-strategy so that it is the caller's and not the proxy's.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String CART_USER_PREFIX = "/cart/user/";
+
+    private final RateLimits rateLimits;
+
+    public RateLimitFilter(RateLimits rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            check(request);
+        } catch (RateLimitExceededException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"" + e.getMessage() + "\"}");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void check(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if ("POST".equals(method) && "/auth/login".equals(path)) {
+            rateLimits.checkLoginByIp(request.getRemoteAddr());
+        } else if ("POST".equals(method) && "/auth/register".equals(path)) {
+            rateLimits.checkRegisterByIp(request.getRemoteAddr());
+        } else if (!"GET".equals(method) && !"OPTIONS".equals(method) && path.startsWith(CART_USER_PREFIX)) {
+            rateLimits.checkCartWriteByIp(request.getRemoteAddr());
+            rateLimits.checkCartWriteByAccount(account(path));
+        }
+    }
+
+    private static String account(String path) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.email();
+        }
+        int end = path.indexOf('/', CART_USER_PREFIX.length());
+        return "user:" + path.substring(CART_USER_PREFIX.length(), end < 0 ? path.length() : end);
+    }
+}
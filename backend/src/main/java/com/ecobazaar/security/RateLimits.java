@@ -0,0 +1,105 @@
+package com.ecobazaar.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rate limits in front of the endpoints that reach BCrypt or write to MySQL:
+ * login and registration per client IP, login per account email, and cart writes per
+ * IP and per account. Each limit is a "count/period" spec under rate-limit.* and is
+ * held in this process only, so with several nodes a client gets the limit once per
+ * node. IP limits are checked by RateLimitFilter; the email limit needs the parsed
+ * request body and is checked by the controller.
+ */
+@Component
+public class RateLimits {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimits.class);
+
+    private final boolean enabled;
+    private final TokenBuckets loginByIp;
+    private final TokenBuckets loginByEmail;
+    private final TokenBuckets registerByIp;
+    private final TokenBuckets cartWritesByIp;
+    private final TokenBuckets cartWritesByAccount;
+
+    public RateLimits(@Value("${rate-limit.enabled:true}") boolean enabled,
+                      @Value("${rate-limit.max-keys:100000}") int maxKeys,
+                      @Value("${rate-limit.login.per-ip:20/1m}") String loginPerIp,
+                      @Value("${rate-limit.login.per-email:10/1m}") String loginPerEmail,
+                      @Value("${rate-limit.register.per-ip:10/1h}") String registerPerIp,
+                      @Value("${rate-limit.cart-write.per-ip:300/1m}") String cartWritePerIp,
+                      @Value("${rate-limit.cart-write.per-account:120/1m}") String cartWritePerAccount) {
+        this.enabled = enabled;
+        this.loginByIp = TokenBuckets.parse("login.per-ip", loginPerIp, maxKeys);
+        this.loginByEmail = TokenBuckets.parse("login.per-email", loginPerEmail, maxKeys);
+        this.registerByIp = TokenBuckets.parse("register.per-ip", registerPerIp, maxKeys);
+        this.cartWritesByIp = TokenBuckets.parse("cart-write.per-ip", cartWritePerIp, maxKeys);
+        this.cartWritesByAccount = TokenBuckets.parse("cart-write.per-account", cartWritePerAccount, maxKeys);
+    }
+
+    public void checkLoginByIp(String ip) {
+        check(loginByIp, ip);
+    }
+
+    public void checkLoginByEmail(String email) {
+        check(loginByEmail, email.toLowerCase(Locale.ROOT));
+    }
+
+    public void checkRegisterByIp(String ip) {
+        check(registerByIp, ip);
+    }
+
+    public void checkCartWriteByIp(String ip) {
+        check(cartWritesByIp, ip);
+    }
+
+    public void checkCartWriteByAccount(String account) {
+        check(cartWritesByAccount, account);
+    }
+
+    // Rejection counters and live bucket counts, per limit
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        for (TokenBuckets limit : limits()) {
+            stats.put(limit.getName(), limit.getStats());
+        }
+        return stats;
+    }
+
+    // Refilled buckets hold no state worth keeping
+    @Scheduled(fixedDelayString = "${rate-limit.evict-interval-ms:60000}",
+            initialDelayString = "${rate-limit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        int evicted = 0;
+        for (TokenBuckets limit : limits()) {
+            evicted += limit.evictIdle();
+        }
+        log.debug("Idle rate limit buckets evicted: {}", evicted);
+    }
+
+    private void check(TokenBuckets limit, String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        long waitNanos = limit.acquire(key);
+        if (waitNanos > 0) {
+            log.debug("Rate limit {} exceeded by {}", limit.getName(), key);
+            throw new RateLimitExceededException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+        }
+    }
+
+    private List<TokenBuckets> limits() {
+        return List.of(loginByIp, loginByEmail, registerByIp, cartWritesByIp, cartWritesByAccount);
+    }
+}
@@ -0,0 +1,173 @@
+package com.ecobazaar.security;
+
+import com.ecobazaar.dto.RevokedAccessToken;
+import com.ecobazaar.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Ids (jti) of access tokens that were revoked before they expired. Checked on every
+ * authenticated request, so the lookup is a probe into a primitive open-addressing
+ * table: no allocation, no lock, no database.
+ *
+ * The table is copy-on-write. Revocations made on this node are added after their
+ * transaction commits, and revocations made on other nodes are polled from
+ * refresh_tokens by revoked_at. Each copy drops entries whose token has expired by
+ * then, because an expired token is rejected anyway. Between polls another node's
+ * revocation can take up to jwt.revocation.poll-interval-ms to arrive.
+ */
+@Component
+public class RevokedTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(RevokedTokens.class);
+
+    // Polls look back this far to catch revocations committed out of revoked_at order
+    private static final long POLL_OVERLAP_SECONDS = 5;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private volatile Table table = Table.EMPTY;
+
+    // Start of the next poll; null until the first poll has loaded everything still live
+    private LocalDateTime pollFrom;
+
+    // Open-addressing set of token ids with the expiry of each; never modified once published
+    private static final class Table {
+        static final Table EMPTY = new Table(new long[2], new long[2], 0, Long.MAX_VALUE);
+
+        final long[] ids;
+        final long[] expiresAt;
+        final int size;
+        final long earliestExpiry;
+
+        Table(long[] ids, long[] expiresAt, int size, long earliestExpiry) {
+            this.ids = ids;
+            this.expiresAt = expiresAt;
+            this.size = size;
+            this.earliestExpiry = earliestExpiry;
+        }
+
+        boolean contains(long id) {
+            int mask = ids.length - 1;
+            for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+                long current = ids[i];
+                if (current == id && expiresAt[i] != 0) {
+                    return true;
+                }
+                if (expiresAt[i] == 0) {
+                    return false;
+                }
+            }
+        }
+
+        // Copy the live entries plus the additions into a table with room to spare
+        Table with(long[] addIds, long[] addExpiries, int count, long now) {
+            int capacity = Integer.highestOneBit(Math.max(2, (size + count) * 2 - 1)) << 1;
+            long[] newIds = new long[capacity];
+            long[] newExpiries = new long[capacity];
+            int newSize = 0;
+            long earliest = Long.MAX_VALUE;
+            for (int i = 0; i < ids.length; i++) {
+                if (expiresAt[i] > now) {
+                    newSize += put(newIds, newExpiries, ids[i], expiresAt[i]);
+                    earliest = Math.min(earliest, expiresAt[i]);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (addExpiries[i] > now) {
+                    newSize += put(newIds, newExpiries, addIds[i], addExpiries[i]);
+                    earliest = Math.min(earliest, addExpiries[i]);
+                }
+            }
+            return new Table(newIds, newExpiries, newSize, earliest);
+        }
+
+        // Returns 1 if the id was new
+        private static int put(long[] ids, long[] expiries, long id, long expiresAt) {
+            int mask = ids.length - 1;
+            for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+                if (expiries[i] == 0) {
+                    ids[i] = id;
+                    expiries[i] = expiresAt;
+                    return 1;
+                }
+                if (ids[i] == id) {
+                    expiries[i] = Math.max(expiries[i], expiresAt);
+                    return 0;
+                }
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    public boolean isRevoked(long tokenId) {
+        return table.contains(tokenId);
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    public void revoke(long tokenId, long expiresAtMillis) {
+        revokeAll(new long[] { tokenId }, new long[] { expiresAtMillis }, 1);
+    }
+
+    public void revokeAll(List<RevokedAccessToken> revoked) {
+        long[] ids = new long[revoked.size()];
+        long[] expiries = new long[revoked.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = revoked.get(i).accessTokenId();
+            expiries[i] = toMillis(revoked.get(i).accessExpiresAt());
+        }
+        revokeAll(ids, expiries, ids.length);
+    }
+
+    private synchronized void revokeAll(long[] ids, long[] expiries, int count) {
+        table = table.with(ids, expiries, count, System.currentTimeMillis());
+    }
+
+    // Copy the table without its expired entries, once the first of them has expired
+    private synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        if (table.earliestExpiry <= now) {
+            table = table.with(new long[0], new long[0], 0, now);
+        }
+    }
+
+    // Pull in revocations made anywhere since the last poll, and drop expired entries
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval-ms:1000}")
+    public void poll() {
+        if (refreshTokenRepository == null) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // The first poll loads every revocation whose access token could still be presented
+        LocalDateTime since = pollFrom != null ? pollFrom : LocalDateTime.of(1970, 1, 1, 0, 0);
+        List<RevokedAccessToken> revoked = refreshTokenRepository.findRevokedSince(since, now);
+        pollFrom = now.minusSeconds(POLL_OVERLAP_SECONDS);
+
+        if (!revoked.isEmpty()) {
+            revokeAll(revoked);
+            log.debug("Revoked access tokens polled: {}, {} tracked", revoked.size(), table.size);
+        } else {
+            purgeExpired();
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
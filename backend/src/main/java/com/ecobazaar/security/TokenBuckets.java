@@ -0,0 +1,127 @@
+package com.ecobazaar.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One rate limit, e.g. "20 logins per minute per IP": a token bucket per key holding
+ * up to capacity tokens, refilled evenly over period. Each bucket is a single
+ * AtomicLong holding the time at which it would be full again (the GCRA form of a
+ * token bucket), so taking a token is one read and one compare-and-set, with no lock
+ * and no allocation once the key has a bucket.
+ *
+ * A bucket that has refilled completely is indistinguishable from a new one, so
+ * evictIdle() can drop it. A request racing the eviction may take its token from the
+ * dropped bucket, which at worst lets one extra request through. When maxKeys buckets
+ * are live, further keys share one overflow bucket until eviction makes room, so a
+ * flood of distinct keys cannot grow the map without bound.
+ */
+public class TokenBuckets {
+
+    private final String name;
+    private final int capacity;
+    private final long periodNanos;
+    private final long intervalNanos;
+    private final int maxKeys;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBuckets(String name, int capacity, long period, TimeUnit unit, int maxKeys) {
+        if (capacity < 1 || period < 1) {
+            throw new IllegalArgumentException("Rate limit " + name + " needs a positive capacity and period");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.periodNanos = unit.toNanos(period);
+        this.intervalNanos = periodNanos / capacity;
+        this.maxKeys = maxKeys;
+        this.overflow = new AtomicLong(System.nanoTime());
+    }
+
+    // Parse "<count>/<period>" with the period in s, m or h, e.g. "20/1m"
+    public static TokenBuckets parse(String name, String spec, int maxKeys) {
+        String[] parts = spec.trim().split("/");
+        if (parts.length != 2 || parts[1].length() < 2) {
+            throw new IllegalArgumentException("Rate limit " + name + " must look like 20/1m, got: " + spec);
+        }
+        String period = parts[1].trim();
+        TimeUnit unit = switch (period.charAt(period.length() - 1)) {
+            case 's' -> TimeUnit.SECONDS;
+            case 'm' -> TimeUnit.MINUTES;
+            case 'h' -> TimeUnit.HOURS;
+            default -> throw new IllegalArgumentException("Rate limit " + name + " period must end in s, m or h: " + spec);
+        };
+        return new TokenBuckets(name, Integer.parseInt(parts[0].trim()),
+                Long.parseLong(period.substring(0, period.length() - 1)), unit, maxKeys);
+    }
+
+    // Take a token from the key's bucket; returns 0 if taken, otherwise the nanoseconds until one is available
+    public long acquire(String key) {
+        return acquire(key, System.nanoTime());
+    }
+
+    long acquire(String key, long now) {
+        AtomicLong bucket = bucketFor(key, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now < 0 ? now : fullAt) + intervalNanos;
+            long wait = next - now - periodNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    // Drop buckets that have refilled completely; returns how many were dropped
+    public int evictIdle() {
+        return evictIdle(System.nanoTime());
+    }
+
+    int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("limit", capacity + " per " + TimeUnit.NANOSECONDS.toSeconds(periodNanos) + "s");
+        stats.put("keys", buckets.size());
+        stats.put("maxKeys", maxKeys);
+        stats.put("allowed", allowed.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evictIdle(now);
+            if (buckets.size() >= maxKeys) {
+                return overflow;
+            }
+        }
+        // A new bucket starts full
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+    }
+}
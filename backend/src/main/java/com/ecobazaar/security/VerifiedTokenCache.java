@@ -0,0 +1,87 @@
+package com.ecobazaar.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of tokens whose signature has already been checked, keyed by the
+ * SHA-256 digest of the token so raw tokens are never kept. An entry lives until the
+ * token's own expiry; a repeat request skips signature verification and claim
+ * parsing. When the cache is full, expired entries are purged and, if it is still
+ * full, new tokens are verified on every request instead of being cached.
+ */
+@Component
+public class VerifiedTokenCache {
+    
+    private final int maxSize;
+    
+    private final Map<ByteBuffer, JwtPrincipal> entries = new ConcurrentHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:100000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    // Return the cached principal for the token, or verify it and cache the result; verifier errors propagate
+    public JwtPrincipal get(String token, Function<String, JwtPrincipal> verifier) {
+        ByteBuffer key = digest(token);
+        long now = System.currentTimeMillis();
+        
+        JwtPrincipal cached = entries.get(key);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                hits.increment();
+                return cached;
+            }
+            entries.remove(key, cached);
+        }
+        
+        misses.increment();
+        JwtPrincipal principal = verifier.apply(token);
+        if (entries.size() >= maxSize) {
+            purgeExpired(now);
+        }
+        if (entries.size() < maxSize) {
+            entries.put(key, principal);
+        }
+        return principal;
+    }
+    
+    public void invalidateAll() {
+        entries.clear();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+    
+    private void purgeExpired(long now) {
+        entries.values().removeIf(principal -> principal.isExpired(now));
+    }
+    
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -7,11 +7,11 @@ import com.ecobazaar.entity.Role;
 import com.ecobazaar.entity.User;
 import com.ecobazaar.repository.RoleRepository;
 import com.ecobazaar.repository.UserRepository;
-import com.ecobazaar.security.JwtUtils;
+import com.ecobazaar.security.PasswordHashing;
+import com.ecobazaar.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -25,12 +25,17 @@ public class AuthService {
     private RoleRepository roleRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashing passwordHashing;
     
     @Autowired
-    private JwtUtils jwtUtils;
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     
-    @Transactional
     public AuthResponse register(RegisterRequest request) {
         // Validate role (only CUSTOMER and SELLER can register)
         Role.RoleName roleName;
@@ -43,6 +48,23 @@ public class AuthService {
             throw new RuntimeException("Invalid role: " + request.getRole());
         }
         
+        // An existing account only gains a role with its own password. Verify or hash before the
+        // transaction, so no connection waits on the hashing queue
+        Optional<PrincipalCache.Account> account = principalCache.get(request.getEmail());
+        String passwordHash;
+        if (account.isPresent()) {
+            if (!passwordHashing.matches(request.getPassword(), account.get().passwordHash())) {
+                throw new RuntimeException("Invalid email or password!");
+            }
+            passwordHash = account.get().passwordHash();
+        } else {
+            passwordHash = passwordHashing.encode(request.getPassword());
+        }
+        
+        return transactionTemplate.execute(status -> register(request, roleName, passwordHash));
+    }
+    
+    private AuthResponse register(RegisterRequest request, Role.RoleName roleName, String passwordHash) {
         // Find role entity
         Role role = roleRepository.findByName(roleName)
                 .orElseThrow(() -> new RuntimeException("Role not found: " + roleName));
@@ -53,6 +75,11 @@ public class AuthService {
         if (existingUser.isPresent()) {
             User user = existingUser.get();
             
+            // The password checked above must still be the account's (not a newer one, or a racing registration's)
+            if (!user.getPasswordHash().equals(passwordHash)) {
+                throw new RuntimeException("Invalid email or password!");
+            }
+            
             // Check if user already has this role
             if (user.hasRole(roleName)) {
                 throw new RuntimeException("You are already registered as " + roleName);
@@ -61,13 +88,11 @@ public class AuthService {
             // Add new role to existing user
             user.addRole(role);
             User savedUser = userRepository.save(user);
+            principalCache.invalidate(savedUser.getEmail());
             
-            // Generate JWT token for the new role
-            String jwt = jwtUtils.generateJwtToken(savedUser.getEmail(), roleName.toString());
-            
-            return new AuthResponse(jwt, savedUser.getId(), savedUser.getFullName(), 
-                    savedUser.getEmail(), roleName.toString(), 
-                    "New role added successfully!");
+            // Start a session for the new role
+            return toAuthResponse(refreshTokenService.issue(savedUser.getId(), savedUser.getEmail(), roleName),
+                    savedUser.getFullName(), "New role added successfully!");
         } else {
             // Create new user
             User user = new User();
@@ -75,19 +100,16 @@ public class AuthService {
             user.setEmail(request.getEmail());
             user.setPhone(request.getPhone());
             user.setAddress(request.getAddress());
-            user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+            user.setPasswordHash(passwordHash);
             user.setEnabled(true);
             user.addRole(role);
             
             // Save user
             User savedUser = userRepository.save(user);
             
-            // Generate JWT token
-            String jwt = jwtUtils.generateJwtToken(savedUser.getEmail(), roleName.toString());
-            
-            return new AuthResponse(jwt, savedUser.getId(), savedUser.getFullName(), 
-                    savedUser.getEmail(), roleName.toString(), 
-                    "Registration successful!");
+            // Start a session
+            return toAuthResponse(refreshTokenService.issue(savedUser.getId(), savedUser.getEmail(), roleName),
+                    savedUser.getFullName(), "Registration successful!");
         }
     }
     
@@ -100,30 +122,42 @@ public class AuthService {
             throw new RuntimeException("Invalid role: " + request.getRole());
         }
         
-        // Find user by email and verify they have the requested role
-        User user = userRepository.findByEmailAndRole(request.getEmail(), requestedRole)
+        // Find the enabled user by email (cached) and verify they have the requested role
+        PrincipalCache.Account account = principalCache.get(request.getEmail())
+                .filter(user -> user.enabled() && user.hasRole(requestedRole))
                 .orElseThrow(() -> new RuntimeException("Invalid credentials or you don't have " + requestedRole + " role!"));
         
-        // Check if user is enabled
-        if (!user.getEnabled()) {
-            throw new RuntimeException("Account is disabled!");
-        }
-        
         // Verify password
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
+        if (!passwordHashing.matches(request.getPassword(), account.passwordHash())) {
             throw new RuntimeException("Invalid email or password!");
         }
         
         // For admin role, ensure they ONLY have admin role (professional restriction)
-        if (requestedRole == Role.RoleName.ADMIN && user.getRoles().size() > 1) {
+        if (requestedRole == Role.RoleName.ADMIN && account.roles().size() > 1) {
             throw new RuntimeException("Admin accounts cannot have multiple roles!");
         }
         
-        // Generate JWT token for the requested role
-        String jwt = jwtUtils.generateJwtToken(user.getEmail(), requestedRole.toString());
-        
-        return new AuthResponse(jwt, user.getId(), user.getFullName(), 
-                user.getEmail(), requestedRole.toString(), 
-                "Login successful!");
+        // Start a session for the requested role
+        return toAuthResponse(refreshTokenService.issue(account.userId(), account.email(), requestedRole),
+                account.fullName(), "Login successful!");
+    }
+    
+    // Swap a refresh token for a new access and refresh token
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.TokenPair tokens = refreshTokenService.rotate(refreshToken);
+        String fullName = principalCache.get(tokens.email()).map(PrincipalCache.Account::fullName).orElse(null);
+        return toAuthResponse(tokens, fullName, "Token refreshed");
+    }
+    
+    // End the session behind the refresh token; its access token stops working too
+    public void logout(String refreshToken) {
+        refreshTokenService.revokeSession(refreshToken);
+    }
+    
+    private static AuthResponse toAuthResponse(RefreshTokenService.TokenPair tokens, String fullName, String message) {
+        AuthResponse response = new AuthResponse(tokens.accessToken(), tokens.userId(), fullName,
+                tokens.email(), tokens.role().toString(), message);
+        response.setRefreshToken(tokens.refreshToken());
+        return response;
     }
 }
@@ -0,0 +1,89 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartOperationRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds an ordered list of cart operations into one net change per product, so a
+ * burst of quantity steps touches each line once. Products keep the order of their
+ * first operation.
+ */
+final class CartBatch {
+    
+    /**
+     * Net change for one product. A relative change adds quantity to the line; an
+     * absolute one sets it, 0 meaning the line is removed. requiresLine is set when
+     * the first operation was a set, which needs the line to exist already.
+     */
+    record Change(Long productId, boolean absolute, int quantity, boolean requiresLine, boolean adds) {
+        
+        // New quantity given the current one (null when absent); null means the line is removed
+        Integer applyTo(Integer current) {
+            if (requiresLine && current == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            int result = absolute ? quantity : (current == null ? 0 : current) + quantity;
+            return result > 0 ? result : null;
+        }
+    }
+    
+    // Running fold for one product
+    private static final class Fold {
+        boolean absolute;
+        int quantity;
+        boolean requiresLine;
+        boolean adds;
+        // Whether the line is known to exist at this point of the batch; null when it depends on the cart
+        Boolean present;
+    }
+    
+    private CartBatch() {}
+    
+    static List<Change> coalesce(List<CartOperationRequest> operations) {
+        Map<Long, Fold> folds = new LinkedHashMap<>();
+        for (CartOperationRequest operation : operations) {
+            Fold fold = folds.computeIfAbsent(operation.getProductId(), id -> new Fold());
+            Integer quantity = operation.getQuantity();
+            
+            switch (operation.getOp()) {
+                case "add" -> {
+                    if (quantity == null || quantity < 1) {
+                        throw new RuntimeException("Quantity must be at least 1 for add");
+                    }
+                    fold.quantity += quantity;
+                    fold.adds = true;
+                    fold.present = true;
+                }
+                case "set" -> {
+                    if (quantity == null) {
+                        throw new RuntimeException("Quantity is required for set");
+                    }
+                    if (Boolean.FALSE.equals(fold.present)) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                    if (fold.present == null) {
+                        fold.requiresLine = true;
+                    }
+                    fold.absolute = true;
+                    fold.quantity = Math.max(quantity, 0);
+                    fold.present = quantity > 0;
+                }
+                case "remove" -> {
+                    fold.absolute = true;
+                    fold.quantity = 0;
+                    fold.present = false;
+                }
+                default -> throw new RuntimeException("Unknown cart operation: " + operation.getOp());
+            }
+        }
+        
+        List<Change> changes = new ArrayList<>(folds.size());
+        folds.forEach((productId, fold) -> changes.add(
+                new Change(productId, fold.absolute, fold.quantity, fold.requiresLine, fold.adds)));
+        return changes;
+    }
+}
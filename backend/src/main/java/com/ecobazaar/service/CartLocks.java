@@ -0,0 +1,59 @@
+package com.ecobazaar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped per-user locks that serialize cart mutations of one user inside this
+ * process. Writes for the same user queue up here instead of on database row locks;
+ * different users map to different stripes and run in parallel (two users share a
+ * stripe only on a hash collision). Writes arriving through other nodes are still
+ * kept consistent by the unique keys and atomic statements underneath.
+ */
+@Component
+public class CartLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public CartLocks(@Value("${cart.locks.stripes:1024}") int stripeCount,
+                     @Value("${cart.locks.timeout-ms:5000}") long timeoutMillis) {
+        // Round up to a power of two so the stripe index is a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // Run the action holding the user's stripe; fails if the stripe stays busy past the timeout
+    public <T> T withLock(Long userId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the cart");
+        }
+        if (!acquired) {
+            throw new RuntimeException("Cart is busy, please try again");
+        }
+
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h ^ (h >>> 32)) & (stripes.length - 1)];
+    }
+}
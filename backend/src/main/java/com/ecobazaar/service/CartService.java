@@ -1,11 +1,15 @@
 package com.ecobazaar.service;
 
+import com.ecobazaar.dto.CartBatchRequest;
+import com.ecobazaar.dto.CartDeltaResponse;
 import com.ecobazaar.dto.CartItemRequest;
 import com.ecobazaar.dto.CartItemResponse;
+import com.ecobazaar.dto.CartLineRow;
 import com.ecobazaar.dto.CartResponse;
+import com.ecobazaar.dto.ProductPricing;
+import com.ecobazaar.dto.ProductResponse;
 import com.ecobazaar.entity.Cart;
 import com.ecobazaar.entity.CartItem;
-import com.ecobazaar.entity.Product;
 import com.ecobazaar.entity.User;
 import com.ecobazaar.repository.CartItemRepository;
 import com.ecobazaar.repository.CartRepository;
@@ -14,9 +18,16 @@ import com.ecobazaar.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,83 +45,333 @@ public class CartService {
     @Autowired
     private UserRepository userRepository;
     
-    // Get or create cart for user
-    @Transactional
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private CartLocks cartLocks;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private StockReservations stockReservations;
+    
+    // Get the user's cart without writing; a user who never added anything gets an empty, unsaved cart
+    @Transactional(readOnly = true)
     public CartResponse getUserCart(Long userId) {
-        Cart cart = cartRepository.findByUserIdWithItems(userId)
-                .orElseGet(() -> createCartForUser(userId));
+        if (cartStore.isEnabled()) {
+            return convertToCartResponse(userId, cartStore.get(userId));
+        }
         
-        return convertToCartResponse(cart);
+        List<CartLineRow> rows = cartRepository.findCartLines(userId);
+        if (rows.isEmpty()) {
+            return emptyCart(userId);
+        }
+        return convertToCartResponse(userId, rows);
     }
     
     // Add item to cart
-    @Transactional
     public CartResponse addToCart(Long userId, CartItemRequest request) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseGet(() -> createCartForUser(userId));
+        return addToCart(userId, request, fullView);
+    }
+    
+    // Add item to cart, returning only what changed
+    public CartDeltaResponse addToCartDelta(Long userId, CartItemRequest request) {
+        return addToCart(userId, request, deltaView);
+    }
+    
+    // Apply an ordered batch of add/set/remove operations in one transaction
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        return applyBatch(userId, request, fullView);
+    }
+    
+    // Apply a batch, returning only what changed
+    public CartDeltaResponse applyBatchDelta(Long userId, CartBatchRequest request) {
+        return applyBatch(userId, request, deltaView);
+    }
+    
+    // Update cart item quantity
+    public CartResponse updateCartItem(Long userId, Long productId, Integer quantity) {
+        return updateCartItem(userId, productId, quantity, fullView);
+    }
+    
+    // Update cart item quantity, returning only what changed
+    public CartDeltaResponse updateCartItemDelta(Long userId, Long productId, Integer quantity) {
+        return updateCartItem(userId, productId, quantity, deltaView);
+    }
+    
+    // Remove item from cart
+    public CartResponse removeFromCart(Long userId, Long productId) {
+        return removeFromCart(userId, productId, fullView);
+    }
+    
+    // Remove item from cart, returning only what changed
+    public CartDeltaResponse removeFromCartDelta(Long userId, Long productId) {
+        return removeFromCart(userId, productId, deltaView);
+    }
+    
+    // Clear entire cart
+    public void clearCart(Long userId) {
+        if (cartStore.isEnabled()) {
+            cartStore.clear(userId);
+            return;
+        }
+        serialized(userId, () -> {
+            cartItemRepository.deleteByUserId(userId);
+            cartRepository.resetTotals(userId, LocalDateTime.now());
+            return null;
+        });
+    }
+    
+    /**
+     * Run a database cart mutation under the user's stripe lock, with the lock held
+     * until the transaction has committed, so the next write for that user sees it.
+     */
+    private <T> T serialized(Long userId, Supplier<T> mutation) {
+        return cartLocks.withLock(userId, () -> transactionTemplate.execute(status -> mutation.get()));
+    }
+    
+    /**
+     * Shapes what a mutation returns: the whole cart, or only the lines of the products
+     * it touched. Both are built while the mutation still holds the cart, so the
+     * version they carry is the one their contents belong to.
+     */
+    private interface CartView<T> {
+        T fromDatabase(Long userId, List<Long> touched);
         
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + request.getProductId()));
+        T fromSnapshot(Long userId, CartStore.Snapshot snapshot, List<Long> touched);
         
-        // Check if item already exists in cart
-        CartItem existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId())
-                .orElse(null);
+        // Quantity of a touched product's line in the response; 0 when it has none
+        int quantityOf(T response, Long productId);
+    }
+    
+    private static int quantityOf(List<CartItemResponse> lines, Long productId) {
+        if (lines == null) {
+            return 0;
+        }
+        for (CartItemResponse line : lines) {
+            if (productId.equals(line.getProductId())) {
+                return line.getQuantity();
+            }
+        }
+        return 0;
+    }
+    
+    private final CartView<CartResponse> fullView = new CartView<>() {
+        public CartResponse fromDatabase(Long userId, List<Long> touched) {
+            return loadCartResponse(userId);
+        }
         
-        if (existingItem != null) {
-            // Update quantity
-            existingItem.setQuantity(existingItem.getQuantity() + request.getQuantity());
-            cartItemRepository.save(existingItem);
-        } else {
-            // Create new cart item
-            CartItem newItem = new CartItem(cart, product, request.getQuantity());
-            cart.addItem(newItem);
-            cartItemRepository.save(newItem);
+        public CartResponse fromSnapshot(Long userId, CartStore.Snapshot snapshot, List<Long> touched) {
+            return convertToCartResponse(userId, snapshot);
+        }
+        
+        public int quantityOf(CartResponse response, Long productId) {
+            return CartService.quantityOf(response.getItems(), productId);
+        }
+    };
+    
+    private final CartView<CartDeltaResponse> deltaView = new CartView<>() {
+        public CartDeltaResponse fromDatabase(Long userId, List<Long> touched) {
+            return loadCartDelta(userId, touched);
         }
         
-        cart = cartRepository.save(cart);
-        return convertToCartResponse(cart);
+        public CartDeltaResponse fromSnapshot(Long userId, CartStore.Snapshot snapshot, List<Long> touched) {
+            return convertToCartDelta(userId, snapshot, touched);
+        }
+        
+        public int quantityOf(CartDeltaResponse response, Long productId) {
+            return CartService.quantityOf(response.getChangedItems(), productId);
+        }
+    };
+    
+    private <T> T addToCart(Long userId, CartItemRequest request, CartView<T> view) {
+        List<Long> touched = List.of(request.getProductId());
+        checkStock(request.getProductId(), request.getQuantity());
+        if (cartStore.isEnabled()) {
+            ProductResponse product = productService.getProductById(request.getProductId());
+            if (!Boolean.TRUE.equals(product.getIsActive())) {
+                throw new RuntimeException("Product not found with id: " + request.getProductId());
+            }
+            return view.fromSnapshot(userId, cartStore.add(userId, product.getId(), request.getQuantity(),
+                    MinorUnits.cents(product.getPrice()), MinorUnits.grams(product.getCarbonFootprint()),
+                    this::checkStock), touched);
+        }
+        return serialized(userId, () -> {
+            addLine(userId, request);
+            T response = view.fromDatabase(userId, touched);
+            // The whole line, not just this add, must fit the stock; throwing rolls the upsert back
+            checkStock(request.getProductId(), view.quantityOf(response, request.getProductId()));
+            return response;
+        });
     }
     
-    // Update cart item quantity
-    @Transactional
-    public CartResponse updateCartItem(Long userId, Long productId, Integer quantity) {
+    private <T> T applyBatch(Long userId, CartBatchRequest request, CartView<T> view) {
+        List<CartBatch.Change> changes = CartBatch.coalesce(request.getOperations());
+        Map<Long, ProductPricing> pricing = loadPricing(changes);
+        List<Long> touched = changes.stream().map(CartBatch.Change::productId).collect(Collectors.toList());
+        
+        if (cartStore.isEnabled()) {
+            return view.fromSnapshot(userId, cartStore.apply(userId, changes, pricing, this::checkStock), touched);
+        }
+        return serialized(userId, () -> {
+            applyChanges(userId, changes, pricing);
+            return view.fromDatabase(userId, touched);
+        });
+    }
+    
+    private <T> T updateCartItem(Long userId, Long productId, Integer quantity, CartView<T> view) {
+        List<Long> touched = List.of(productId);
+        checkStock(productId, quantity);
+        if (cartStore.isEnabled()) {
+            return view.fromSnapshot(userId, cartStore.set(userId, productId, quantity), touched);
+        }
+        return serialized(userId, () -> {
+            setLineQuantity(userId, productId, quantity);
+            return view.fromDatabase(userId, touched);
+        });
+    }
+    
+    private <T> T removeFromCart(Long userId, Long productId, CartView<T> view) {
+        List<Long> touched = List.of(productId);
+        if (cartStore.isEnabled()) {
+            return view.fromSnapshot(userId, cartStore.remove(userId, productId), touched);
+        }
+        return serialized(userId, () -> {
+            removeLine(userId, productId);
+            return view.fromDatabase(userId, touched);
+        });
+    }
+    
+    // Upsert the line and move the running totals
+    private void addLine(Long userId, CartItemRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        int affected = cartItemRepository.upsertQuantity(userId, request.getProductId(), request.getQuantity(), now);
+        
+        if (affected == 0) {
+            // Either this is the user's first add or the product cannot be bought; find out which
+            if (cartRepository.findByUserId(userId).isPresent()) {
+                throw new RuntimeException("Product not found with id: " + request.getProductId());
+            }
+            createCartForUser(userId);
+            affected = cartItemRepository.upsertQuantity(userId, request.getProductId(), request.getQuantity(), now);
+            if (affected == 0) {
+                throw new RuntimeException("Product not found with id: " + request.getProductId());
+            }
+        }
+        cartRepository.adjustTotals(userId, request.getProductId(), request.getQuantity(), now);
+    }
+    
+    // Write the coalesced batch changes and their effect on the running totals
+    private void applyChanges(Long userId, List<CartBatch.Change> changes, Map<Long, ProductPricing> pricing) {
+        Cart cart = cartRepository.findByUserId(userId).orElse(null);
+        if (cart == null) {
+            if (changes.stream().noneMatch(CartBatch.Change::adds)) {
+                throw new RuntimeException("Cart not found for user");
+            }
+            cart = createCartForUser(userId);
+        }
+        
+        Map<Long, CartItem> existing = new HashMap<>();
+        for (CartItem item : cartItemRepository.findByCartIdAndProductIdIn(cart.getId(), pricing.keySet())) {
+            existing.put(item.getProduct().getId(), item);
+        }
+        
+        long subtotalCents = cart.getSubtotalCents();
+        long carbonGrams = cart.getCarbonGrams();
+        int totalItems = cart.getTotalItems();
+        for (CartBatch.Change change : changes) {
+            CartItem item = existing.get(change.productId());
+            int before = item == null ? 0 : item.getQuantity();
+            Integer quantity = change.applyTo(item == null ? null : before);
+            int after = quantity == null ? 0 : quantity;
+            if (after > before) {
+                checkStock(change.productId(), after);
+            }
+            
+            if (quantity == null) {
+                if (item != null) {
+                    cartItemRepository.delete(item);
+                }
+            } else if (item == null) {
+                cartItemRepository.save(new CartItem(cart, productRepository.getReferenceById(change.productId()), quantity));
+            } else {
+                item.setQuantity(quantity);
+            }
+            
+            if (after != before) {
+                ProductPricing product = pricing.get(change.productId());
+                subtotalCents += (after - before) * MinorUnits.cents(product.price());
+                carbonGrams += (after - before) * MinorUnits.grams(product.carbonFootprint());
+                totalItems += after - before;
+            }
+        }
+        cart.setSubtotalCents(subtotalCents);
+        cart.setCarbonGrams(carbonGrams);
+        cart.setTotalItems(totalItems);
+        cart.setVersion(cart.getVersion() + 1);
+    }
+    
+    // Set one line (0 deletes it) and move the totals by the difference
+    private void setLineQuantity(Long userId, Long productId, Integer quantity) {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found for user"));
         
         CartItem cartItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
         
+        int delta = Math.max(quantity, 0) - cartItem.getQuantity();
         if (quantity <= 0) {
-            cart.removeItem(cartItem);
             cartItemRepository.delete(cartItem);
         } else {
             cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
         }
-        
-        cart = cartRepository.save(cart);
-        return convertToCartResponse(cart);
+        cartRepository.adjustTotals(userId, productId, delta, LocalDateTime.now());
     }
     
-    // Remove item from cart
-    @Transactional
-    public CartResponse removeFromCart(Long userId, Long productId) {
+    // Delete one line if present and take it out of the totals
+    private void removeLine(Long userId, Long productId) {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found for user"));
         
-        cartItemRepository.deleteByCartIdAndProductId(cart.getId(), productId);
-        
-        // Refresh cart
-        cart = cartRepository.findByUserIdWithItems(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found after removal"));
+        CartItem cartItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId).orElse(null);
+        if (cartItem != null) {
+            cartItemRepository.delete(cartItem);
+            cartRepository.adjustTotals(userId, productId, -cartItem.getQuantity(), LocalDateTime.now());
+        }
+    }
+    
+    // Price and footprint of every product a batch touches; products it adds must exist and be active
+    private Map<Long, ProductPricing> loadPricing(List<CartBatch.Change> changes) {
+        List<Long> productIds = changes.stream().map(CartBatch.Change::productId).collect(Collectors.toList());
+        Map<Long, ProductPricing> pricing = new HashMap<>();
+        for (ProductPricing product : productRepository.findPricingByIdIn(productIds)) {
+            pricing.put(product.id(), product);
+        }
         
-        return convertToCartResponse(cart);
+        for (CartBatch.Change change : changes) {
+            ProductPricing product = pricing.get(change.productId());
+            if (change.adds() && (product == null || !Boolean.TRUE.equals(product.isActive()))) {
+                throw new RuntimeException("Product not found with id: " + change.productId());
+            }
+            // Relative adds are checked against line plus increment once the line is read
+            if (product != null && change.absolute()) {
+                checkStock(change.productId(), change.quantity());
+            }
+        }
+        return pricing;
     }
     
-    // Clear entire cart
-    @Transactional
-    public void clearCart(Long userId) {
-        cartItemRepository.deleteByUserId(userId);
+    // A line cannot ask for more units than can still be reserved; stock is only taken at checkout
+    private void checkStock(Long productId, Integer quantity) {
+        int available = stockReservations.available(productId);
+        if (quantity != null && quantity > available) {
+            throw new RuntimeException("Only " + available + " left in stock for product id: " + productId);
+        }
     }
     
     // Helper method to create cart for user
@@ -122,71 +383,160 @@ public class CartService {
         return cartRepository.save(cart);
     }
     
-    // Convert Cart entity to CartResponse DTO
-    private CartResponse convertToCartResponse(Cart cart) {
-        CartResponse response = new CartResponse();
-        response.setId(cart.getId());
-        response.setUserId(cart.getUser().getId());
-        response.setUpdatedAt(cart.getUpdatedAt());
+    // Build the response from the joined cart read (one statement)
+    private CartResponse loadCartResponse(Long userId) {
+        List<CartLineRow> rows = cartRepository.findCartLines(userId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Cart not found for user");
+        }
+        return convertToCartResponse(userId, rows);
+    }
+    
+    // Build the delta from a joined read of the touched lines only (one statement)
+    private CartDeltaResponse loadCartDelta(Long userId, List<Long> touched) {
+        List<CartLineRow> rows = cartRepository.findCartLines(userId, touched);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Cart not found for user");
+        }
         
-        List<CartItemResponse> items = cart.getCartItems().stream()
+        CartLineRow header = rows.get(0);
+        List<CartItemResponse> changed = rows.stream()
+                .filter(row -> row.itemId() != null)
                 .map(this::convertToCartItemResponse)
                 .collect(Collectors.toList());
         
-        response.setItems(items);
-        
-        // Calculate totals
-        BigDecimal subtotal = items.stream()
-                .map(CartItemResponse::getLineTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalCarbon = items.stream()
-                .map(CartItemResponse::getLineCarbonFootprint)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        Integer totalItems = items.stream()
-                .mapToInt(CartItemResponse::getQuantity)
-                .sum();
+        CartDeltaResponse response = new CartDeltaResponse();
+        response.setId(header.cartId());
+        response.setUserId(userId);
+        response.setUpdatedAt(header.cartUpdatedAt());
+        response.setVersion(header.cartVersion());
+        response.setChangedItems(changed);
+        response.setRemovedProductIds(removedProductIds(touched, changed));
+        response.setSubtotal(MinorUnits.fromCents(header.cartSubtotalCents()));
+        response.setTotalCarbonFootprint(MinorUnits.fromGrams(header.cartCarbonGrams()));
+        response.setTotalItems(header.cartTotalItems());
+        return response;
+    }
+    
+    // Convert the joined cart rows (header plus one row per line) to CartResponse DTO
+    private CartResponse convertToCartResponse(Long userId, List<CartLineRow> rows) {
+        CartLineRow header = rows.get(0);
+        CartResponse response = new CartResponse();
+        response.setId(header.cartId());
+        response.setUserId(userId);
+        response.setUpdatedAt(header.cartUpdatedAt());
+        response.setItems(rows.stream()
+                .filter(row -> row.itemId() != null)
+                .map(this::convertToCartItemResponse)
+                .collect(Collectors.toList()));
+        setTotals(response, header.cartSubtotalCents(), header.cartCarbonGrams(), header.cartTotalItems());
+        response.setVersion(header.cartVersion());
+        return response;
+    }
+    
+    // A cart that is not stored yet: no id, no lines, version 0
+    private static CartResponse emptyCart(Long userId) {
+        CartResponse response = new CartResponse();
+        response.setUserId(userId);
+        response.setItems(new ArrayList<>());
+        setTotals(response, 0, 0, 0);
+        response.setVersion(0L);
+        return response;
+    }
+    
+    // Build the response from an in-memory cart; product details come from the product detail cache
+    private CartResponse convertToCartResponse(Long userId, CartStore.Snapshot snapshot) {
+        CartResponse response = new CartResponse();
+        response.setId(snapshot.cartId());
+        response.setUserId(userId);
+        response.setUpdatedAt(snapshot.updatedAt());
+        response.setItems(snapshot.lines().stream()
+                .map(line -> convertToCartItemResponse(line, productService.getProductById(line.productId())))
+                .collect(Collectors.toList()));
+        setTotals(response, snapshot.subtotalCents(), snapshot.carbonGrams(), snapshot.totalItems());
+        response.setVersion(snapshot.version());
+        return response;
+    }
+    
+    // Build the delta from an in-memory cart, looking up product details for the touched lines only
+    private CartDeltaResponse convertToCartDelta(Long userId, CartStore.Snapshot snapshot, List<Long> touched) {
+        Set<Long> touchedIds = new HashSet<>(touched);
+        List<CartItemResponse> changed = snapshot.lines().stream()
+                .filter(line -> touchedIds.contains(line.productId()))
+                .map(line -> convertToCartItemResponse(line, productService.getProductById(line.productId())))
+                .collect(Collectors.toList());
         
-        response.setSubtotal(subtotal);
-        response.setTotalCarbonFootprint(totalCarbon);
+        CartDeltaResponse response = new CartDeltaResponse();
+        response.setId(snapshot.cartId());
+        response.setUserId(userId);
+        response.setUpdatedAt(snapshot.updatedAt());
+        response.setVersion(snapshot.version());
+        response.setChangedItems(changed);
+        response.setRemovedProductIds(removedProductIds(touched, changed));
+        response.setSubtotal(MinorUnits.fromCents(snapshot.subtotalCents()));
+        response.setTotalCarbonFootprint(MinorUnits.fromGrams(snapshot.carbonGrams()));
+        response.setTotalItems(snapshot.totalItems());
+        return response;
+    }
+    
+    // Touched products that no longer have a line
+    private static List<Long> removedProductIds(List<Long> touched, List<CartItemResponse> changed) {
+        Set<Long> present = changed.stream().map(CartItemResponse::getProductId).collect(Collectors.toSet());
+        return touched.stream().filter(productId -> !present.contains(productId)).collect(Collectors.toList());
+    }
+    
+    // Totals are kept as running sums in minor units; they only become decimals here
+    private static void setTotals(CartResponse response, long subtotalCents, long carbonGrams, int totalItems) {
+        response.setSubtotal(MinorUnits.fromCents(subtotalCents));
+        response.setTotalCarbonFootprint(MinorUnits.fromGrams(carbonGrams));
         response.setTotalItems(totalItems);
-        
+    }
+    
+    // Line totals in minor units, converted at the edge
+    private static void setLineTotals(CartItemResponse response, long unitCents, long unitGrams, int quantity) {
+        response.setLineTotal(MinorUnits.fromCents(unitCents * quantity));
+        response.setLineCarbonFootprint(MinorUnits.fromGrams(unitGrams * quantity));
+    }
+    
+    // Convert a joined cart row to CartItemResponse DTO
+    private CartItemResponse convertToCartItemResponse(CartLineRow row) {
+        CartItemResponse response = new CartItemResponse();
+        response.setId(row.itemId());
+        response.setProductId(row.productId());
+        response.setProductName(row.productName());
+        response.setProductDescription(row.productDescription());
+        response.setProductPrice(row.productPrice());
+        response.setProductImageUrl(row.productImageUrl());
+        response.setProductCategory(row.productCategory());
+        response.setProductSeller(row.productSeller());
+        response.setProductRating(row.productRating());
+        response.setProductReviews(row.productReviews());
+        response.setProductCarbonFootprint(row.productCarbonFootprint());
+        response.setProductStock(row.productStock());
+        response.setQuantity(row.quantity());
+        setLineTotals(response, MinorUnits.cents(row.productPrice()),
+                MinorUnits.grams(row.productCarbonFootprint()), row.quantity());
         return response;
     }
     
-    // Convert CartItem entity to CartItemResponse DTO
-    private CartItemResponse convertToCartItemResponse(CartItem cartItem) {
+    // Convert an in-memory cart line and its product to CartItemResponse DTO
+    private CartItemResponse convertToCartItemResponse(CartStore.Line line, ProductResponse product) {
         CartItemResponse response = new CartItemResponse();
-        Product product = cartItem.getProduct();
-        
-        response.setId(cartItem.getId());
+        response.setId(line.itemId());
         response.setProductId(product.getId());
         response.setProductName(product.getName());
         response.setProductDescription(product.getDescription());
         response.setProductPrice(product.getPrice());
         response.setProductImageUrl(product.getImageUrl());
+        response.setProductCategory(product.getCategory());
+        response.setProductSeller(product.getSeller());
         response.setProductRating(product.getRating());
         response.setProductReviews(product.getReviewsCount());
         response.setProductCarbonFootprint(product.getCarbonFootprint());
         response.setProductStock(product.getStockQuantity());
-        response.setQuantity(cartItem.getQuantity());
-        
-        if (product.getCategory() != null) {
-            response.setProductCategory(product.getCategory().getName());
-        }
-        
-        if (product.getSeller() != null) {
-            response.setProductSeller(product.getSeller().getFullName());
-        }
-        
-        // Calculate line totals
-        BigDecimal lineTotal = product.getPrice().multiply(new BigDecimal(cartItem.getQuantity()));
-        BigDecimal lineCarbonFootprint = product.getCarbonFootprint().multiply(new BigDecimal(cartItem.getQuantity()));
-        
-        response.setLineTotal(lineTotal);
-        response.setLineCarbonFootprint(lineCarbonFootprint);
-        
+        response.setQuantity(line.quantity());
+        // Counted at the line's own unit amounts so the lines always add up to the totals
+        setLineTotals(response, line.unitCents(), line.unitGrams(), line.quantity());
         return response;
     }
 }
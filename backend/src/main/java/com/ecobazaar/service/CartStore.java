@@ -0,0 +1,744 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartLineRow;
+import com.ecobazaar.dto.ProductPricing;
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Optional in-process cart engine, switched on with cart.store.enabled. Active carts are
+ * held in memory keyed by user id and loaded from the database on first use. Mutations
+ * are applied in memory and written back to cart / cart_items in coalesced batches:
+ * only lines changed since the last flush are written, however often they changed.
+ *
+ * In sync mode a mutation is written through before it is acknowledged. In write-behind
+ * mode a background job flushes dirty carts, so changes acknowledged after the last
+ * flush are lost if the node dies. Idle carts, and the least recently used ones once the
+ * store is full, are flushed and dropped. A user's requests must reach the same node.
+ *
+ * A batch that fails to write is retried cart by cart, so one bad cart cannot hold
+ * back the others. A cart whose own flush fails max-flush-attempts times in a row is
+ * dropped with its unwritten changes logged; the next request reloads what is stored.
+ */
+@Component
+public class CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    public enum Durability { SYNC, WRITE_BEHIND }
+
+    private static final String INSERT_CART_SQL =
+            "INSERT INTO cart (user_id, subtotal_cents, carbon_grams, total_items, version, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String TOUCH_CART_SQL =
+            "UPDATE cart SET subtotal_cents = ?, carbon_grams = ?, total_items = ?, version = ?, updated_at = ? "
+            + "WHERE id = ?";
+    private static final String DELETE_LINE_SQL =
+            "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+    private static final String UPSERT_LINE_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, created_at, updated_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), updated_at = VALUES(updated_at)";
+    private static final String LINE_IDS_SQL =
+            "SELECT product_id, id FROM cart_items WHERE cart_id = ?";
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cart.store.enabled:false}")
+    private boolean enabled;
+
+    private final Durability durability;
+
+    // Flushes commit on their own, whatever transaction the caller may be in
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.store.max-carts:10000}")
+    private int maxCarts;
+
+    @Value("${cart.store.idle-timeout-seconds:900}")
+    private long idleTimeoutSeconds;
+
+    @Value("${cart.store.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    @Value("${cart.store.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    private final Map<Long, CachedCart> carts = new ConcurrentHashMap<>();
+    private final AtomicBoolean evictingOverflow = new AtomicBoolean();
+
+    // Immutable view of a cart handed back to CartService
+    public record Snapshot(Long cartId, LocalDateTime updatedAt, List<Line> lines,
+                           long subtotalCents, long carbonGrams, int totalItems, long version) {}
+
+    // One line with the unit price (cents) and footprint (grams) it is counted at in the totals
+    public record Line(Long itemId, Long productId, int quantity, long unitCents, long unitGrams) {
+
+        Line withQuantity(int newQuantity) {
+            return new Line(itemId, productId, newQuantity, unitCents, unitGrams);
+        }
+    }
+
+    // Mutable cart state; guarded by the instance monitor
+    private static final class CachedCart {
+        final Long userId;
+        Long cartId;
+        LocalDateTime updatedAt;
+        final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        long subtotalCents;
+        long carbonGrams;
+        int totalItems;
+        long version;
+        final Set<Long> changed = new HashSet<>();
+        final Set<Long> removed = new HashSet<>();
+        volatile boolean dirty;
+        int flushing;
+        int failedFlushes;
+        boolean evicted;
+        // Placeholder held while CartSweeper deletes the stored cart; never handed out
+        boolean sweeping;
+        volatile long lastAccess;
+
+        CachedCart(Long userId) {
+            this.userId = userId;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(cartId, updatedAt, List.copyOf(lines.values()), subtotalCents, carbonGrams,
+                    totalItems, version);
+        }
+
+        // Replace (or with null, drop) the line of a product, moving the totals by the difference
+        void putLine(Long productId, Line line) {
+            Line previous = line == null ? lines.remove(productId) : lines.put(productId, line);
+            count(previous, -1);
+            count(line, 1);
+        }
+
+        void count(Line line, int sign) {
+            if (line != null) {
+                subtotalCents += sign * line.unitCents() * line.quantity();
+                carbonGrams += sign * line.unitGrams() * line.quantity();
+                totalItems += sign * line.quantity();
+            }
+        }
+    }
+
+    // What one flush writes for one cart
+    private record Pending(CachedCart cart, Long cartId, LocalDateTime updatedAt,
+                           long subtotalCents, long carbonGrams, int totalItems, long version,
+                           List<Line> upserts, List<Long> deletes) {}
+
+    public CartStore(PlatformTransactionManager transactionManager,
+                     @Value("${cart.store.durability:sync}") String durability) {
+        this.durability = Durability.valueOf(durability.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // Whether the user's cart is currently held in memory
+    public boolean holds(Long userId) {
+        CachedCart cart = carts.get(userId);
+        return cart != null && !cart.sweeping;
+    }
+
+    /**
+     * Keep the user's cart out of memory while CartSweeper deletes the stored one.
+     * Returns false, blocking nothing, if the cart is held in memory (it is in use).
+     * Otherwise loads of the cart wait until unblockLoads, so none can read the rows
+     * just before they are deleted and keep them alive in memory.
+     */
+    public boolean blockLoads(Long userId) {
+        if (!enabled) {
+            return true;
+        }
+        CachedCart placeholder = new CachedCart(userId);
+        placeholder.evicted = true;
+        placeholder.sweeping = true;
+        return carts.putIfAbsent(userId, placeholder) == null;
+    }
+
+    // Let loads of the cart through again; call once the sweep's transaction has ended
+    public void unblockLoads(Long userId) {
+        CachedCart placeholder = carts.get(userId);
+        if (placeholder != null && placeholder.sweeping) {
+            synchronized (placeholder) {
+                carts.remove(userId, placeholder);
+                placeholder.notifyAll();
+            }
+        }
+    }
+
+    // Current state of the user's cart, loading it if needed; cartId is null until the cart is first written
+    public Snapshot get(Long userId) {
+        while (true) {
+            CachedCart cart = acquire(userId);
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    return cart.snapshot();
+                }
+            }
+        }
+    }
+
+    // Add quantity to a line at the product's current unit amounts, creating the line if needed.
+    // checkQuantity sees the line's new quantity first and may throw to leave the cart unchanged.
+    public Snapshot add(Long userId, Long productId, int quantity, long unitCents, long unitGrams,
+                        BiConsumer<Long, Integer> checkQuantity) {
+        return mutate(userId, cart -> {
+            Line line = cart.lines.get(productId);
+            int newQuantity = line == null ? quantity : line.quantity() + quantity;
+            checkQuantity.accept(productId, newQuantity);
+            cart.putLine(productId, new Line(line == null ? null : line.itemId(), productId, newQuantity, unitCents, unitGrams));
+            cart.changed.add(productId);
+        });
+    }
+
+    // Set the quantity of an existing line; zero or less removes it
+    public Snapshot set(Long userId, Long productId, int quantity) {
+        return mutate(userId, cart -> {
+            Line line = cart.lines.get(productId);
+            if (line == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            if (quantity <= 0) {
+                removeLine(cart, productId);
+            } else {
+                cart.putLine(productId, line.withQuantity(quantity));
+                cart.changed.add(productId);
+            }
+        });
+    }
+
+    // Remove a line; removing a line that is not there is a no-op
+    public Snapshot remove(Long userId, Long productId) {
+        return mutate(userId, cart -> removeLine(cart, productId));
+    }
+
+    // Remove every line
+    public Snapshot clear(Long userId) {
+        return mutate(userId, cart -> {
+            for (Long productId : new ArrayList<>(cart.lines.keySet())) {
+                removeLine(cart, productId);
+            }
+        });
+    }
+
+    /**
+     * Hand the whole cart to action, which must empty the stored cart in the same
+     * transaction that consumes it (checkout). Once action returns, the cart is dropped
+     * from memory without a flush, so the next use reloads the emptied cart. If action
+     * throws, the cart is left as it was. A flush already writing this cart is waited
+     * for first, so it cannot put lines back after action has deleted them.
+     */
+    public <T> T consume(Long userId, Function<Snapshot, T> action) {
+        while (true) {
+            CachedCart cart = acquire(userId);
+            synchronized (cart) {
+                awaitFlushes(cart);
+                if (cart.evicted) {
+                    continue;
+                }
+                T result = action.apply(cart.snapshot());
+                cart.evicted = true;
+                carts.remove(userId, cart);
+                return result;
+            }
+        }
+    }
+
+    // Apply coalesced batch changes atomically: if any change fails, none is applied.
+    // New lines are counted at the given product amounts; checkQuantity sees every line that grows.
+    Snapshot apply(Long userId, List<CartBatch.Change> changes, Map<Long, ProductPricing> pricing,
+                   BiConsumer<Long, Integer> checkQuantity) {
+        return mutate(userId, cart -> {
+            Map<Long, Integer> results = new LinkedHashMap<>();
+            for (CartBatch.Change change : changes) {
+                Line line = cart.lines.get(change.productId());
+                int before = line == null ? 0 : line.quantity();
+                Integer after = change.applyTo(line == null ? null : before);
+                if (after != null && after > before) {
+                    checkQuantity.accept(change.productId(), after);
+                }
+                results.put(change.productId(), after);
+            }
+            results.forEach((productId, quantity) -> {
+                if (quantity == null) {
+                    removeLine(cart, productId);
+                } else {
+                    Line line = cart.lines.get(productId);
+                    if (line == null) {
+                        ProductPricing product = pricing.get(productId);
+                        line = new Line(null, productId, quantity,
+                                MinorUnits.cents(product.price()), MinorUnits.grams(product.carbonFootprint()));
+                    }
+                    cart.putLine(productId, line.withQuantity(quantity));
+                    cart.changed.add(productId);
+                }
+            });
+        });
+    }
+
+    /**
+     * Re-count the lines of a product whose price or footprint changed. The database
+     * totals were already moved in the product transaction; cached carts holding the
+     * product are marked dirty so a flush cannot write back totals from before.
+     */
+    public void reprice(Long productId, long unitCents, long unitGrams) {
+        if (!enabled) {
+            return;
+        }
+        for (CachedCart cart : carts.values()) {
+            synchronized (cart) {
+                Line line = cart.lines.get(productId);
+                if (line != null && (line.unitCents() != unitCents || line.unitGrams() != unitGrams)) {
+                    cart.putLine(productId, new Line(line.itemId(), productId, line.quantity(), unitCents, unitGrams));
+                    cart.version++;
+                    cart.dirty = true;
+                }
+            }
+        }
+    }
+
+    private static void removeLine(CachedCart cart, Long productId) {
+        if (cart.lines.containsKey(productId)) {
+            cart.putLine(productId, null);
+            cart.changed.remove(productId);
+            cart.removed.add(productId);
+        }
+    }
+
+    private Snapshot mutate(Long userId, Consumer<CachedCart> change) {
+        while (true) {
+            CachedCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                change.accept(cart);
+                cart.version++;
+                cart.updatedAt = LocalDateTime.now();
+                cart.dirty = true;
+
+                if (durability == Durability.SYNC) {
+                    try {
+                        flush(List.of(cart));
+                    } catch (RuntimeException e) {
+                        // Memory is now ahead of the database; drop it so the next call reloads what was stored
+                        cart.evicted = true;
+                        carts.remove(userId, cart);
+                        throw e;
+                    }
+                }
+                return cart.snapshot();
+            }
+        }
+    }
+
+    // Wait, holding the cart's monitor, until no flush is writing the cart or it is evicted
+    private static void awaitFlushes(CachedCart cart) {
+        while (cart.flushing > 0 && !cart.evicted) {
+            try {
+                cart.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the cart to be written");
+            }
+        }
+    }
+
+    private CachedCart acquire(Long userId) {
+        while (true) {
+            CachedCart cart = carts.get(userId);
+            if (cart == null) {
+                CachedCart loaded = load(userId);
+                cart = carts.putIfAbsent(userId, loaded);
+                if (cart == null) {
+                    cart = loaded;
+                    if (carts.size() > maxCarts) {
+                        evictOverflow();
+                    }
+                }
+            }
+            if (cart.sweeping) {
+                // What was just loaded may be deleted; wait for the sweep and read again
+                awaitSweep(userId, cart);
+                continue;
+            }
+            cart.lastAccess = System.currentTimeMillis();
+            return cart;
+        }
+    }
+
+    private void awaitSweep(Long userId, CachedCart placeholder) {
+        synchronized (placeholder) {
+            while (carts.get(userId) == placeholder) {
+                try {
+                    // Bounded, in case the placeholder is dropped without a notify (discardAll)
+                    placeholder.wait(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the cart sweep");
+                }
+            }
+        }
+    }
+
+    private CachedCart load(Long userId) {
+        CachedCart cart = new CachedCart(userId);
+        List<CartLineRow> rows = cartRepository.findCartLines(userId);
+        if (rows.isEmpty()) {
+            // Checked now so that a write-behind flush cannot fail on the foreign key later
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found with id: " + userId);
+            }
+            return cart;
+        }
+
+        CartLineRow header = rows.get(0);
+        cart.cartId = header.cartId();
+        cart.updatedAt = header.cartUpdatedAt();
+        cart.version = header.cartVersion();
+        for (CartLineRow row : rows) {
+            if (row.itemId() != null) {
+                cart.putLine(row.productId(), new Line(row.itemId(), row.productId(), row.quantity(),
+                        MinorUnits.cents(row.productPrice()), MinorUnits.grams(row.productCarbonFootprint())));
+            }
+        }
+
+        // Totals are recounted from the lines at current prices; repair the stored ones if they drifted
+        if (cart.subtotalCents != header.cartSubtotalCents() || cart.carbonGrams != header.cartCarbonGrams()
+                || cart.totalItems != header.cartTotalItems()) {
+            cart.dirty = true;
+        }
+        return cart;
+    }
+
+    // Write back every dirty cart in batches; in sync mode only repriced or repaired carts are dirty here
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:200}")
+    public void flushDirty() {
+        if (!enabled) {
+            return;
+        }
+
+        List<CachedCart> dirty = new ArrayList<>();
+        for (CachedCart cart : carts.values()) {
+            if (cart.dirty) {
+                dirty.add(cart);
+                if (dirty.size() >= flushBatchSize) {
+                    flushQuietly(dirty);
+                    dirty = new ArrayList<>();
+                }
+            }
+        }
+        flushQuietly(dirty);
+    }
+
+    // Flush and drop carts that have not been used within the idle timeout
+    @Scheduled(fixedDelayString = "${cart.store.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        if (!enabled || carts.isEmpty()) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - idleTimeoutSeconds * 1000;
+        int evicted = 0;
+        for (CachedCart cart : carts.values()) {
+            if (cart.lastAccess < cutoff && evict(cart)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("Cart store evicted {} idle carts, {} remain", evicted, carts.size());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!enabled) {
+            return;
+        }
+        flushQuietly(new ArrayList<>(carts.values()));
+        // Carts a running flush was writing were skipped; write them once it has finished
+        for (CachedCart cart : carts.values()) {
+            if (cart.dirty) {
+                flushQuietly(List.of(cart));
+            }
+        }
+    }
+
+    // Drop every cached cart without flushing, as if the node had stopped; used by tests
+    void discardAll() {
+        for (CachedCart cart : carts.values()) {
+            synchronized (cart) {
+                cart.evicted = true;
+            }
+        }
+        carts.clear();
+    }
+
+    // Once the store is over capacity, drop the least recently used tenth
+    private void evictOverflow() {
+        if (!evictingOverflow.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = carts.size() - maxCarts + Math.max(1, maxCarts / 10);
+            List<CachedCart> oldest = new ArrayList<>(carts.values());
+            oldest.sort(Comparator.comparingLong(cart -> cart.lastAccess));
+            for (int i = 0; i < oldest.size() && excess > 0; i++) {
+                if (evict(oldest.get(i))) {
+                    excess--;
+                }
+            }
+        } finally {
+            evictingOverflow.set(false);
+        }
+    }
+
+    private boolean evict(CachedCart cart) {
+        if (cart.dirty) {
+            flushQuietly(List.of(cart));
+        }
+        synchronized (cart) {
+            if (cart.dirty || cart.flushing > 0 || cart.evicted) {
+                return false;
+            }
+            cart.evicted = true;
+            carts.remove(cart.userId, cart);
+            return true;
+        }
+    }
+
+    // Flush a batch; if it fails, flush its carts one by one so only the failing ones are held back
+    private void flushQuietly(List<CachedCart> batch) {
+        try {
+            flush(batch);
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                flushFailed(batch.get(0), e);
+                return;
+            }
+            log.warn("Cart store flush of {} carts failed; retrying cart by cart", batch.size(), e);
+        }
+        for (CachedCart cart : batch) {
+            try {
+                flush(List.of(cart));
+            } catch (RuntimeException e) {
+                flushFailed(cart, e);
+            }
+        }
+    }
+
+    // Count a failed flush of one cart; past the limit, drop the cart and what it had not written
+    private void flushFailed(CachedCart cart, RuntimeException e) {
+        synchronized (cart) {
+            cart.failedFlushes++;
+            if (cart.evicted || cart.flushing > 0 || cart.failedFlushes < maxFlushAttempts) {
+                log.error("Cart store flush of user {} failed (attempt {} of {}); will retry",
+                        cart.userId, cart.failedFlushes, maxFlushAttempts, e);
+                return;
+            }
+            cart.evicted = true;
+            carts.remove(cart.userId, cart);
+            log.error("Cart store dropped user {} cart version {} after {} failed flushes; "
+                    + "unwritten lines {} and removals {} are lost",
+                    cart.userId, cart.version, cart.failedFlushes, cart.changed, cart.removed, e);
+        }
+    }
+
+    /**
+     * Write the changes of a batch of carts in one transaction. Only one flush writes a
+     * cart at a time, so an older snapshot can never commit after a newer one: a single
+     * cart waits for a flush already writing it, and a batch skips such carts, which stay
+     * dirty for the next round (a batch waiting while holding others could deadlock).
+     */
+    private void flush(List<CachedCart> batch) {
+        List<Pending> pending = new ArrayList<>();
+        for (CachedCart cart : batch) {
+            synchronized (cart) {
+                if (batch.size() == 1) {
+                    awaitFlushes(cart);
+                }
+                if (!cart.dirty || cart.evicted || cart.flushing > 0) {
+                    continue;
+                }
+                List<Line> upserts = new ArrayList<>();
+                for (Long productId : cart.changed) {
+                    upserts.add(cart.lines.get(productId));
+                }
+                LocalDateTime updatedAt = cart.updatedAt != null ? cart.updatedAt : LocalDateTime.now();
+                pending.add(new Pending(cart, cart.cartId, updatedAt, cart.subtotalCents, cart.carbonGrams,
+                        cart.totalItems, cart.version, upserts, new ArrayList<>(cart.removed)));
+                cart.changed.clear();
+                cart.removed.clear();
+                cart.dirty = false;
+                cart.flushing++;
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<CachedCart, Long> createdCartIds = new HashMap<>();
+        Map<CachedCart, Map<Long, Long>> lineIds = new HashMap<>();
+        boolean written = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(pending, createdCartIds, lineIds));
+            written = true;
+        } finally {
+            for (Pending p : pending) {
+                CachedCart cart = p.cart();
+                synchronized (cart) {
+                    if (--cart.flushing == 0) {
+                        cart.notifyAll();
+                    }
+                    if (written) {
+                        cart.failedFlushes = 0;
+                        if (cart.cartId == null) {
+                            cart.cartId = createdCartIds.get(cart);
+                        }
+                        assignLineIds(cart, lineIds.get(cart));
+                    } else {
+                        // Put the changes back; deletes run before upserts, so a product in both sets is safe
+                        for (Line line : p.upserts()) {
+                            if (cart.lines.containsKey(line.productId())) {
+                                cart.changed.add(line.productId());
+                            }
+                        }
+                        cart.removed.addAll(p.deletes());
+                        cart.dirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(List<Pending> pending, Map<CachedCart, Long> createdCartIds,
+                       Map<CachedCart, Map<Long, Long>> lineIds) {
+        List<Object[]> touches = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        List<Pending> gainedLines = new ArrayList<>();
+
+        for (Pending p : pending) {
+            Timestamp updatedAt = Timestamp.valueOf(p.updatedAt());
+            Long cartId = p.cartId();
+            if (cartId == null) {
+                cartId = insertCart(p, updatedAt);
+                createdCartIds.put(p.cart(), cartId);
+            } else {
+                touches.add(new Object[] { p.subtotalCents(), p.carbonGrams(), p.totalItems(), p.version(),
+                        updatedAt, cartId });
+            }
+
+            for (Long productId : p.deletes()) {
+                deletes.add(new Object[] { cartId, productId });
+            }
+            boolean newLines = false;
+            for (Line line : p.upserts()) {
+                upserts.add(new Object[] { cartId, line.productId(), line.quantity(), updatedAt, updatedAt });
+                newLines |= line.itemId() == null;
+            }
+            if (newLines) {
+                gainedLines.add(p);
+            }
+        }
+
+        if (!touches.isEmpty()) {
+            jdbcTemplate.batchUpdate(TOUCH_CART_SQL, touches);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LINE_SQL, deletes);
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_LINE_SQL, upserts);
+        }
+
+        // Carts that gained lines read back the generated line ids
+        for (Pending p : gainedLines) {
+            Long cartId = p.cartId() != null ? p.cartId() : createdCartIds.get(p.cart());
+            Map<Long, Long> ids = new HashMap<>();
+            jdbcTemplate.query(LINE_IDS_SQL, rs -> {
+                ids.put(rs.getLong(1), rs.getLong(2));
+            }, cartId);
+            lineIds.put(p.cart(), ids);
+        }
+    }
+
+    private Long insertCart(Pending p, Timestamp now) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_CART_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, p.cart().userId);
+            ps.setLong(2, p.subtotalCents());
+            ps.setLong(3, p.carbonGrams());
+            ps.setInt(4, p.totalItems());
+            ps.setLong(5, p.version());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    private static void assignLineIds(CachedCart cart, Map<Long, Long> ids) {
+        if (ids == null) {
+            return;
+        }
+        for (Map.Entry<Long, Line> entry : cart.lines.entrySet()) {
+            Line line = entry.getValue();
+            Long itemId = ids.get(entry.getKey());
+            if (line.itemId() == null && itemId != null) {
+                entry.setValue(new Line(itemId, line.productId(), line.quantity(), line.unitCents(), line.unitGrams()));
+            }
+        }
+    }
+}
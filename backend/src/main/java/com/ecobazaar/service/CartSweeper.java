@@ -0,0 +1,116 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Cart;
+import com.ecobazaar.repository.CartItemRepository;
+import com.ecobazaar.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes carts nobody has touched for cart.sweeper.idle-days, together with their
+ * lines. Orders keep everything that was bought, so an abandoned cart holds nothing
+ * worth archiving. Work goes in chunks of cart.sweeper.chunk-size carts, each in its
+ * own short transaction: the chunk's cart rows are claimed FOR UPDATE SKIP LOCKED,
+ * so a cart being written is passed over and several nodes sweeping at once take
+ * disjoint chunks. Chunks walk the idle carts in id order, so skipped carts do not
+ * stall the run.
+ *
+ * With the cart store on, a cart held in memory is in use and is skipped. The others
+ * are blocked from loading into the store until their chunk's transaction has ended,
+ * so the store cannot read a cart just before it is deleted.
+ */
+@Component
+public class CartSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSweeper.class);
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.sweeper.idle-days:30}")
+    private int idleDays;
+
+    @Value("${cart.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    // Rows removed by one run
+    public record Sweep(int carts, int lines) {}
+
+    private record Chunk(int claimed, Long lastId, int carts, int lines) {}
+
+    @Scheduled(fixedDelayString = "${cart.sweeper.interval-ms:3600000}",
+            initialDelayString = "${cart.sweeper.interval-ms:3600000}")
+    public void sweepAbandoned() {
+        long start = System.currentTimeMillis();
+        Sweep sweep = sweepIdleSince(LocalDateTime.now().minusDays(idleDays));
+        log.info("Cart sweep removed {} carts and {} lines in {} ms",
+                sweep.carts(), sweep.lines(), System.currentTimeMillis() - start);
+    }
+
+    // Delete every cart last updated before the cutoff, chunk by chunk
+    Sweep sweepIdleSince(LocalDateTime cutoff) {
+        int carts = 0;
+        int lines = 0;
+        Long afterId = 0L;
+        while (true) {
+            Chunk chunk = sweepChunk(cutoff, afterId);
+            carts += chunk.carts();
+            lines += chunk.lines();
+            if (chunk.claimed() < chunkSize) {
+                return new Sweep(carts, lines);
+            }
+            afterId = chunk.lastId();
+        }
+    }
+
+    private Chunk sweepChunk(LocalDateTime cutoff, Long afterId) {
+        List<Long> blocked = new ArrayList<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Cart> idle = cartRepository.claimIdle(cutoff, afterId, PageRequest.of(0, chunkSize));
+                if (idle.isEmpty()) {
+                    return new Chunk(0, afterId, 0, 0);
+                }
+
+                List<Long> cartIds = new ArrayList<>(idle.size());
+                for (Cart cart : idle) {
+                    // A cart held in memory is in use, whatever its stored timestamp says
+                    Long userId = cart.getUser().getId();
+                    if (cartStore.blockLoads(userId)) {
+                        blocked.add(userId);
+                        cartIds.add(cart.getId());
+                    }
+                }
+
+                Long lastId = idle.get(idle.size() - 1).getId();
+                if (cartIds.isEmpty()) {
+                    return new Chunk(idle.size(), lastId, 0, 0);
+                }
+                int lines = cartItemRepository.deleteByCartIdIn(cartIds);
+                int carts = cartRepository.deleteByIdIn(cartIds);
+                return new Chunk(idle.size(), lastId, carts, lines);
+            });
+        } finally {
+            blocked.forEach(cartStore::unblockLoads);
+        }
+    }
+}
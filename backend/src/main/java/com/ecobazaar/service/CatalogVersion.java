@@ -0,0 +1,53 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Version of the product catalog, read from the products table so that every node
+ * agrees on it: the row count plus the latest updated_at. Every product write (edits,
+ * soft deletes, imports, stock sales) stamps updated_at, so a commit on any node moves
+ * the version. List endpoints derive their ETags from it so a repeat request can be
+ * answered with 304 without loading the list.
+ * <p>
+ * The value is cached. Writes on this node mark it stale once they commit, so the
+ * next request re-reads it; writes on other nodes are picked up by the poll.
+ */
+@Component
+public class CatalogVersion {
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    private volatile String version;
+    private volatile boolean stale = true;
+    
+    // Called after a product write on this node has committed
+    public void invalidate() {
+        stale = true;
+    }
+    
+    public String current() {
+        if (stale || version == null) {
+            // Cleared before the read, so a write that commits meanwhile marks it stale again
+            stale = false;
+            reload();
+        }
+        return version;
+    }
+    
+    // Pick up product writes committed on other nodes; serialized so an older read never overwrites a newer one
+    @Scheduled(fixedDelayString = "${catalog.version.poll-interval-ms:1000}")
+    public synchronized void reload() {
+        Object[] row = productRepository.findCatalogVersion().get(0);
+        long count = ((Number) row[0]).longValue();
+        LocalDateTime latest = (LocalDateTime) row[1];
+        long micros = latest == null ? 0 : latest.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + latest.getNano() / 1_000;
+        version = Long.toString(count, 36) + "." + Long.toString(micros, 36);
+    }
+}
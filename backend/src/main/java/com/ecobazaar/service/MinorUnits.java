@@ -0,0 +1,31 @@
+package com.ecobazaar.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between the decimal amounts stored on products and the long minor
+ * units used for cart arithmetic: cents for prices and grams of CO2e for carbon
+ * footprints. BigDecimal values are only created again at the response edge.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {}
+
+    public static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    public static long grams(BigDecimal kilograms) {
+        return kilograms == null ? 0 : kilograms.setScale(3, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // Kilograms at the two decimal places products are stored with
+    public static BigDecimal fromGrams(long grams) {
+        return BigDecimal.valueOf(grams, 3).setScale(2, RoundingMode.HALF_UP);
+    }
+}
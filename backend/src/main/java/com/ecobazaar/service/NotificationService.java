@@ -0,0 +1,23 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.NotificationResponse;
+import com.ecobazaar.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class NotificationService {
+    
+    @Autowired
+    private NotificationRepository notificationRepository;
+    
+    // Latest notifications of a user, newest first
+    public List<NotificationResponse> getUserNotifications(Long userId) {
+        return notificationRepository.findTop50ByUserIdOrderByIdDesc(userId).stream()
+                .map(n -> new NotificationResponse(n.getId(), n.getMessage(), n.getCreatedAt()))
+                .collect(Collectors.toList());
+    }
+}
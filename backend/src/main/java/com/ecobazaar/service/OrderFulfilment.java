@@ -0,0 +1,279 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.FulfilmentTask;
+import com.ecobazaar.entity.FulfilmentTask.Stage;
+import com.ecobazaar.entity.Order;
+import com.ecobazaar.entity.OrderItem;
+import com.ecobazaar.repository.FulfilmentTaskRepository;
+import com.ecobazaar.repository.OrderRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs placed orders through fulfilment: stock, carbon accounting, buyer notification,
+ * seller notifications. Checkout writes a single fulfilment_tasks row per order, so its
+ * cost does not depend on how many stages follow. Each stage claims due rows in batches
+ * (FOR UPDATE SKIP LOCKED, so several nodes can poll the same table), does its work for
+ * the whole batch with batched statements and moves the rows on to the next stage in
+ * the same transaction.
+ *
+ * A batch that fails is retried order by order; an order that keeps failing backs off
+ * exponentially and is parked in FAILED after fulfilment.max-attempts.
+ */
+@Component
+public class OrderFulfilment {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderFulfilment.class);
+
+    private static final List<Stage> PIPELINE =
+            List.of(Stage.STOCK, Stage.CARBON, Stage.NOTIFY_BUYER, Stage.NOTIFY_SELLERS);
+
+    private static final String CARBON_SQL =
+            "UPDATE users SET purchased_carbon_grams = purchased_carbon_grams + ? WHERE id = ?";
+    private static final String NOTIFICATION_SQL =
+            "INSERT INTO notifications (user_id, message, created_at) VALUES (?, ?, ?)";
+
+    @Autowired
+    private FulfilmentTaskRepository taskRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${fulfilment.batch-size:100}")
+    private int batchSize;
+
+    @Value("${fulfilment.max-attempts:10}")
+    private int maxAttempts;
+
+    // Stock reserved at checkout, by order id, until the stock stage sells it
+    private final Map<Long, List<StockReservations.Reservation>> reservations = new ConcurrentHashMap<>();
+
+    // Keep the reservations of an order being placed; forgotten again if its transaction rolls back
+    void hold(Long orderId, List<StockReservations.Reservation> held) {
+        reservations.put(orderId, held);
+        afterCompletion(committed -> {
+            if (!committed) {
+                reservations.remove(orderId);
+            }
+        });
+    }
+
+    // Advance every due order through as many stages as it can go
+    @Scheduled(fixedDelayString = "${fulfilment.poll-interval-ms:500}")
+    public void processAll() {
+        for (Stage stage : PIPELINE) {
+            while (processBatch(stage) == batchSize) {
+                // A full batch means more may be waiting
+            }
+        }
+    }
+
+    // Claim and run one batch of a stage; returns how many tasks were claimed
+    int processBatch(Stage stage) {
+        List<Long> claimed = new ArrayList<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<FulfilmentTask> tasks = taskRepository.claimDue(stage, LocalDateTime.now(),
+                        PageRequest.of(0, batchSize));
+                tasks.forEach(task -> claimed.add(task.getId()));
+                run(stage, tasks);
+                return tasks.size();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Fulfilment stage {} failed for a batch of {} orders; retrying one by one",
+                    stage, claimed.size(), e);
+            for (Long taskId : claimed) {
+                processOne(taskId, stage);
+            }
+            return claimed.size();
+        }
+    }
+
+    private void processOne(Long taskId, Stage stage) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> taskRepository.claim(taskId, stage)
+                    .ifPresent(task -> run(stage, List.of(task))));
+        } catch (RuntimeException e) {
+            recordFailure(taskId, e);
+        }
+    }
+
+    private void run(Stage stage, List<FulfilmentTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        List<Long> orderIds = tasks.stream().map(FulfilmentTask::getOrderId).collect(Collectors.toList());
+        List<Order> orders = orderRepository.findWithItemsByIdIn(orderIds);
+        switch (stage) {
+            case STOCK -> sellStock(orders);
+            case CARBON -> accountCarbon(orders);
+            case NOTIFY_BUYER -> notifyBuyers(orders);
+            case NOTIFY_SELLERS -> notifySellers(orders);
+            default -> throw new IllegalStateException("Not a pipeline stage: " + stage);
+        }
+
+        List<Long> taskIds = tasks.stream().map(FulfilmentTask::getId).collect(Collectors.toList());
+        taskRepository.advance(taskIds, stage.next(), LocalDateTime.now());
+    }
+
+    /**
+     * Write all of the batch's sales in one statement batch. The in-memory counters are
+     * only moved once the batch commits: a batch that rolls back and is retried order by
+     * order must not take the same units twice. Each counter is loaded before the write,
+     * so a counter first read after the commit does not count the sale again.
+     */
+    private void sellStock(List<Order> orders) {
+        Map<Long, Integer> sold = new HashMap<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                sold.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        sold.keySet().forEach(stockReservations::available);
+        stockReservations.applySales(sold);
+
+        afterCompletion(committed -> {
+            if (!committed) {
+                return;
+            }
+            for (Order order : orders) {
+                List<StockReservations.Reservation> held = reservations.remove(order.getId());
+                if (held != null) {
+                    held.forEach(stockReservations::sell);
+                } else {
+                    // Reserved on a node that has since restarted
+                    order.getItems().forEach(item -> stockReservations.sell(item.getProductId(), item.getQuantity()));
+                }
+            }
+        });
+    }
+
+    // Add each order's footprint to its buyer's lifetime total, one update per buyer
+    private void accountCarbon(List<Order> orders) {
+        Map<Long, Long> gramsByUser = new HashMap<>();
+        for (Order order : orders) {
+            gramsByUser.merge(order.getUser().getId(), order.getCarbonGrams(), Long::sum);
+        }
+
+        List<Object[]> args = new ArrayList<>(gramsByUser.size());
+        gramsByUser.forEach((userId, grams) -> args.add(new Object[] { grams, userId }));
+        jdbcTemplate.batchUpdate(CARBON_SQL, args);
+    }
+
+    private void notifyBuyers(List<Order> orders) {
+        Set<Long> recipients = wantingOrderNotifications(orders.stream()
+                .map(order -> order.getUser().getId())
+                .collect(Collectors.toSet()));
+
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Order order : orders) {
+            Long buyerId = order.getUser().getId();
+            if (recipients.contains(buyerId)) {
+                rows.add(new Object[] { buyerId, String.format("Your order #%d of %d items has been placed (%s kg CO2e)",
+                        order.getId(), order.getTotalItems(), MinorUnits.fromGrams(order.getCarbonGrams())), now });
+            }
+        }
+        insertNotifications(rows);
+    }
+
+    private void notifySellers(List<Order> orders) {
+        // Units per seller per order
+        Map<Long, Map<Long, Integer>> unitsBySellerByOrder = new LinkedHashMap<>();
+        Set<Long> sellerIds = new HashSet<>();
+        for (Order order : orders) {
+            Map<Long, Integer> units = unitsBySellerByOrder.computeIfAbsent(order.getId(), id -> new LinkedHashMap<>());
+            for (OrderItem item : order.getItems()) {
+                units.merge(item.getSellerId(), item.getQuantity(), Integer::sum);
+                sellerIds.add(item.getSellerId());
+            }
+        }
+        Set<Long> recipients = wantingOrderNotifications(sellerIds);
+
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        unitsBySellerByOrder.forEach((orderId, units) -> units.forEach((sellerId, quantity) -> {
+            if (recipients.contains(sellerId)) {
+                rows.add(new Object[] { sellerId,
+                        String.format("New order #%d: %d units of your products", orderId, quantity), now });
+            }
+        }));
+        insertNotifications(rows);
+    }
+
+    private Set<Long> wantingOrderNotifications(Set<Long> userIds) {
+        return userIds.isEmpty() ? Set.of() : new HashSet<>(userRepository.findIdsWithOrderNotifications(userIds));
+    }
+
+    private void insertNotifications(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(NOTIFICATION_SQL, rows);
+        }
+    }
+
+    // Count a failed attempt and schedule the next one, or park the order once attempts run out
+    private void recordFailure(Long taskId, RuntimeException error) {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId).ifPresent(task -> {
+            int attempts = task.getAttempts() + 1;
+            task.setAttempts(attempts);
+            String message = String.valueOf(error.getMessage());
+            task.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+            if (attempts >= maxAttempts) {
+                log.error("Order {} parked after {} failed attempts at stage {}", task.getOrderId(), attempts,
+                        task.getStage(), error);
+                task.setStage(Stage.FAILED);
+            } else {
+                task.setNextAttemptAt(LocalDateTime.now().plusSeconds(Math.min(1L << attempts, 300)));
+            }
+        }));
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
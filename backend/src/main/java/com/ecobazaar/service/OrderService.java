@@ -0,0 +1,262 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartLineRow;
+import com.ecobazaar.dto.OrderItemResponse;
+import com.ecobazaar.dto.OrderResponse;
+import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.entity.FulfilmentTask;
+import com.ecobazaar.entity.Order;
+import com.ecobazaar.entity.OrderItem;
+import com.ecobazaar.repository.CartItemRepository;
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.FulfilmentTaskRepository;
+import com.ecobazaar.repository.OrderRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class OrderService {
+    
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, product_name, seller_id, quantity, unit_cents, unit_grams) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private FulfilmentTaskRepository taskRepository;
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private StockReservations stockReservations;
+    
+    @Autowired
+    private OrderFulfilment fulfilment;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private CartLocks cartLocks;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // One cart line being checked out, at the unit amounts the cart counted it at
+    private record CheckoutLine(Long productId, int quantity, long unitCents, long unitGrams) {}
+    
+    /**
+     * Turn the user's cart into an order. Stock is reserved in memory, then the order,
+     * its items and one fulfilment task are written and the cart emptied in one short
+     * transaction; everything else happens in OrderFulfilment after the response.
+     * With the cart store on, the stored cart is emptied in that same transaction and
+     * the in-memory cart dropped after it commits, so a cart cannot be ordered twice.
+     */
+    public OrderResponse checkout(Long userId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.consume(userId, snapshot -> transactionTemplate.execute(status -> {
+                OrderResponse order = placeOrder(userId, snapshot.lines().stream()
+                        .map(line -> new CheckoutLine(line.productId(), line.quantity(), line.unitCents(), line.unitGrams()))
+                        .collect(Collectors.toList()));
+                emptyStoredCart(userId);
+                return order;
+            }));
+        }
+        
+        return cartLocks.withLock(userId, () -> transactionTemplate.execute(status -> {
+            List<CheckoutLine> lines = cartRepository.findCartLines(userId).stream()
+                    .filter(row -> row.itemId() != null)
+                    .map(OrderService::toCheckoutLine)
+                    .collect(Collectors.toList());
+            OrderResponse order = placeOrder(userId, lines);
+            emptyStoredCart(userId);
+            return order;
+        }));
+    }
+    
+    private void emptyStoredCart(Long userId) {
+        cartItemRepository.deleteByUserId(userId);
+        cartRepository.resetTotals(userId, LocalDateTime.now());
+    }
+    
+    // Orders of a user, newest first
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getUserOrders(Long userId) {
+        return convertToOrderResponses(orderRepository.findWithItemsByUserId(userId));
+    }
+    
+    // Get one order
+    @Transactional(readOnly = true)
+    public OrderResponse getOrder(Long orderId) {
+        List<OrderResponse> orders = convertToOrderResponses(orderRepository.findWithItemsByIdIn(List.of(orderId)));
+        if (orders.isEmpty()) {
+            throw new RuntimeException("Order not found with id: " + orderId);
+        }
+        return orders.get(0);
+    }
+    
+    private OrderResponse placeOrder(Long userId, List<CheckoutLine> lines) {
+        if (lines.isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+        
+        Map<Long, ProductResponse> products = new HashMap<>();
+        for (CheckoutLine line : lines) {
+            ProductResponse product = productService.getProductById(line.productId());
+            if (!Boolean.TRUE.equals(product.getIsActive())) {
+                throw new RuntimeException("Product is no longer available: " + product.getName());
+            }
+            products.put(line.productId(), product);
+        }
+        
+        List<StockReservations.Reservation> reserved = reserveStock(lines);
+        onRollback(() -> reserved.forEach(reservation -> stockReservations.release(reservation.id())));
+        
+        long subtotalCents = 0;
+        long carbonGrams = 0;
+        int totalItems = 0;
+        for (CheckoutLine line : lines) {
+            subtotalCents += line.unitCents() * line.quantity();
+            carbonGrams += line.unitGrams() * line.quantity();
+            totalItems += line.quantity();
+        }
+        Order order = orderRepository.save(
+                new Order(userRepository.getReferenceById(userId), subtotalCents, carbonGrams, totalItems));
+        
+        List<Object[]> items = new ArrayList<>(lines.size());
+        for (CheckoutLine line : lines) {
+            ProductResponse product = products.get(line.productId());
+            items.add(new Object[] { order.getId(), line.productId(), product.getName(), product.getSellerId(),
+                    line.quantity(), line.unitCents(), line.unitGrams() });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items);
+        
+        FulfilmentTask task = taskRepository.save(new FulfilmentTask(order.getId()));
+        fulfilment.hold(order.getId(), reserved);
+        
+        OrderResponse response = new OrderResponse();
+        response.setId(order.getId());
+        response.setUserId(userId);
+        response.setItems(lines.stream()
+                .map(line -> convertToOrderItemResponse(line.productId(), products.get(line.productId()).getName(),
+                        products.get(line.productId()).getSellerId(), line.quantity(), line.unitCents(), line.unitGrams()))
+                .collect(Collectors.toList()));
+        setTotals(response, subtotalCents, carbonGrams, totalItems);
+        response.setFulfilmentStage(task.getStage().name());
+        response.setCreatedAt(order.getCreatedAt());
+        return response;
+    }
+    
+    // Hold every line or none; the holds last until the stock stage sells them
+    private List<StockReservations.Reservation> reserveStock(List<CheckoutLine> lines) {
+        List<StockReservations.Reservation> reserved = new ArrayList<>(lines.size());
+        try {
+            for (CheckoutLine line : lines) {
+                reserved.add(stockReservations.hold(line.productId(), line.quantity()));
+            }
+        } catch (RuntimeException e) {
+            reserved.forEach(reservation -> stockReservations.release(reservation.id()));
+            throw e;
+        }
+        return reserved;
+    }
+    
+    private static CheckoutLine toCheckoutLine(CartLineRow row) {
+        return new CheckoutLine(row.productId(), row.quantity(),
+                MinorUnits.cents(row.productPrice()), MinorUnits.grams(row.productCarbonFootprint()));
+    }
+    
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+    
+    // Convert orders to OrderResponse DTOs with their current fulfilment stage (one extra query)
+    private List<OrderResponse> convertToOrderResponses(List<Order> orders) {
+        Map<Long, FulfilmentTask.Stage> stages = new HashMap<>();
+        if (!orders.isEmpty()) {
+            for (FulfilmentTask task : taskRepository.findByOrderIdIn(
+                    orders.stream().map(Order::getId).collect(Collectors.toList()))) {
+                stages.put(task.getOrderId(), task.getStage());
+            }
+        }
+        
+        List<OrderResponse> responses = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            OrderResponse response = new OrderResponse();
+            response.setId(order.getId());
+            response.setUserId(order.getUser().getId());
+            response.setItems(order.getItems().stream()
+                    .map(this::convertToOrderItemResponse)
+                    .collect(Collectors.toList()));
+            setTotals(response, order.getSubtotalCents(), order.getCarbonGrams(), order.getTotalItems());
+            FulfilmentTask.Stage stage = stages.get(order.getId());
+            response.setFulfilmentStage(stage == null ? null : stage.name());
+            response.setCreatedAt(order.getCreatedAt());
+            responses.add(response);
+        }
+        return responses;
+    }
+    
+    private static void setTotals(OrderResponse response, long subtotalCents, long carbonGrams, int totalItems) {
+        response.setSubtotal(MinorUnits.fromCents(subtotalCents));
+        response.setTotalCarbonFootprint(MinorUnits.fromGrams(carbonGrams));
+        response.setTotalItems(totalItems);
+    }
+    
+    private OrderItemResponse convertToOrderItemResponse(OrderItem item) {
+        return convertToOrderItemResponse(item.getProductId(), item.getProductName(), item.getSellerId(),
+                item.getQuantity(), item.getUnitCents(), item.getUnitGrams());
+    }
+    
+    private OrderItemResponse convertToOrderItemResponse(Long productId, String productName, Long sellerId,
+                                                         int quantity, long unitCents, long unitGrams) {
+        OrderItemResponse response = new OrderItemResponse();
+        response.setProductId(productId);
+        response.setProductName(productName);
+        response.setSellerId(sellerId);
+        response.setQuantity(quantity);
+        response.setUnitPrice(MinorUnits.fromCents(unitCents));
+        response.setUnitCarbonFootprint(MinorUnits.fromGrams(unitGrams));
+        response.setLineTotal(MinorUnits.fromCents(unitCents * quantity));
+        response.setLineCarbonFootprint(MinorUnits.fromGrams(unitGrams * quantity));
+        return response;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.repository.ProductRepositoryCustom;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for product listings: the sort column, direction and
+ * the (sortKey, id) of the last row a client has seen, base64url encoded.
+ */
+public final class ProductCursor {
+    
+    public static final Set<String> SORTABLE_FIELDS =
+            Set.of("createdAt", "updatedAt", "price", "name", "carbonFootprint", "rating", "id");
+    
+    private final String sortBy;
+    private final boolean descending;
+    private final Object sortKey;
+    private final Long id;
+    
+    private ProductCursor(String sortBy, boolean descending, Object sortKey, Long id) {
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+    
+    // Cursor pointing just past the given listing row; a null key is stored as the value it sorts as
+    public static ProductCursor after(ProductResponse product, String sortBy, boolean descending) {
+        Object sortKey = sortKeyOf(product, sortBy);
+        if (sortKey == null) {
+            sortKey = ProductRepositoryCustom.NULL_SORT_KEYS.get(sortBy);
+        }
+        return new ProductCursor(sortBy, descending, sortKey, product.getId());
+    }
+    
+    // Decode a token produced by encode(), checking it was issued for the same ordering
+    public static ProductCursor decode(String token, String sortBy, boolean descending) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        
+        if (parts.length != 4 || !parts[0].equals(sortBy) || parts[1].equals("d") != descending) {
+            throw new RuntimeException("Cursor does not match the requested sort order");
+        }
+        
+        try {
+            return new ProductCursor(sortBy, descending, parseSortKey(sortBy, parts[3]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+    
+    public String encode() {
+        String raw = sortBy + "|" + (descending ? "d" : "a") + "|" + id + "|" + (sortKey == null ? "" : sortKey);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public Object getSortKey() { return sortKey; }
+    
+    public Long getId() { return id; }
+    
+    private static Object sortKeyOf(ProductResponse product, String sortBy) {
+        switch (sortBy) {
+            case "createdAt": return product.getCreatedAt();
+            case "updatedAt": return product.getUpdatedAt();
+            case "price": return product.getPrice();
+            case "name": return product.getName();
+            case "carbonFootprint": return product.getCarbonFootprint();
+            case "rating": return product.getRating();
+            case "id": return product.getId();
+            default: throw new RuntimeException("Unsupported sort field for cursor pagination: " + sortBy);
+        }
+    }
+    
+    private static Object parseSortKey(String sortBy, String value) {
+        switch (sortBy) {
+            case "createdAt":
+            case "updatedAt":
+                return LocalDateTime.parse(value);
+            case "price":
+            case "carbonFootprint":
+            case "rating":
+                return new BigDecimal(value);
+            case "name":
+                return value;
+            case "id":
+                return Long.parseLong(value);
+            default:
+                throw new RuntimeException("Unsupported sort field for cursor pagination: " + sortBy);
+        }
+    }
+}
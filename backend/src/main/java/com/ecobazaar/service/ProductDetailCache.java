@@ -0,0 +1,145 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of product detail responses with a time-to-live per entry.
+ * ProductService invalidates entries after every committed product write.
+ *
+ * Lookups never lock: entries live in a ConcurrentHashMap. A miss parks a load token
+ * under the product id while it reads the database and swaps the token for the
+ * result only if it is still there, so an invalidation of that product during the
+ * load keeps the stale result out while loads of other products are unaffected.
+ * Past maxSize, the least recently used tenth of the entries is trimmed.
+ */
+@Component
+public class ProductDetailCache {
+    
+    // Hits refresh an entry's recency at most this often, so hot entries are not written on every read
+    private static final long TOUCH_INTERVAL_NANOS = 1_000_000L;
+    
+    private final int maxSize;
+    private final long ttlNanos;
+    
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    
+    // Only one thread trims at a time; the others carry on
+    private final ReentrantLock trimming = new ReentrantLock();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    // A cached response, or a load token while value is null; compared by identity
+    private static final class Entry {
+        final ProductResponse value;
+        final long expiresAt;
+        volatile long lastUsed;
+        
+        Entry(ProductResponse value, long expiresAt, long now) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastUsed = now;
+        }
+    }
+    
+    public ProductDetailCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                              @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+    
+    // Return the cached response, or load it and cache it if the product was not written meanwhile
+    public ProductResponse get(Long productId, Function<Long, ProductResponse> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(productId);
+        if (entry != null && entry.value != null) {
+            if (entry.expiresAt - now > 0) {
+                hits.increment();
+                if (now - entry.lastUsed > TOUCH_INTERVAL_NANOS) {
+                    entry.lastUsed = now;
+                }
+                return entry.value;
+            }
+            if (entries.remove(productId, entry)) {
+                evictions.increment();
+            }
+        }
+        
+        misses.increment();
+        // Another load of the same product in flight keeps its token; this one just reads through
+        Entry token = new Entry(null, 0, now);
+        boolean owner = entries.putIfAbsent(productId, token) == null;
+        
+        ProductResponse value;
+        try {
+            value = loader.apply(productId);
+        } catch (RuntimeException e) {
+            if (owner) {
+                entries.remove(productId, token);
+            }
+            throw e;
+        }
+        
+        if (owner) {
+            long loadedAt = System.nanoTime();
+            if (entries.replace(productId, token, new Entry(value, loadedAt + ttlNanos, loadedAt))
+                    && entries.size() > maxSize) {
+                trim();
+            }
+        }
+        return value;
+    }
+    
+    public void invalidate(Long productId) {
+        entries.remove(productId);
+    }
+    
+    public void invalidateAll() {
+        entries.clear();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+    
+    // Drop the least recently used entries down to nine tenths of maxSize
+    private void trim() {
+        if (!trimming.tryLock()) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxSize * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<Long, Entry>> byAge = new ArrayList<>(entries.entrySet());
+            byAge.sort((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+            for (int i = 0; i < excess && i < byAge.size(); i++) {
+                Map.Entry<Long, Entry> eldest = byAge.get(i);
+                if (eldest.getValue().value != null && entries.remove(eldest.getKey(), eldest.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            trimming.unlock();
+        }
+    }
+}
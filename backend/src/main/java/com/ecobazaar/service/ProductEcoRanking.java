@@ -0,0 +1,319 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Sorted in-memory rankings of active products by carbon footprint and by eco score,
+ * one per category plus one for the whole catalog. Each ranking is a list of sorted
+ * chunks of at most CHUNK_SIZE entries: a write shifts entries within one chunk, and
+ * a page is read in place by skipping whole chunks up to its offset, so neither
+ * depends on copying the whole ranking.
+ */
+@Component
+public class ProductEcoRanking {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductEcoRanking.class);
+
+    public static final String ECO_SCORE = "ecoScore";
+    public static final String CARBON_FOOTPRINT = "carbonFootprint";
+
+    private static final Long ALL_CATEGORIES = -1L;
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final int CHUNK_SIZE = 512;
+
+    // Bayesian prior for ratings: products with few reviews are pulled towards 3.0 stars
+    private static final double PRIOR_RATING = 3.0;
+    private static final int PRIOR_REVIEWS = 10;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Map<Long, Ranking> carbonRankings = new HashMap<>();
+    private final Map<Long, Ranking> ecoRankings = new HashMap<>();
+    private final Map<Long, Placement> placements = new HashMap<>();
+
+    // Products written while the startup scan runs; the scan must not overwrite them with older rows
+    private final Set<Long> writtenDuringBuild = new HashSet<>();
+    private boolean building = false;
+
+    private volatile boolean ready = false;
+
+    // One page of ids in ranking order plus the size of the ranking
+    public record RankedPage(List<Long> productIds, long total) {}
+
+    private record Placement(Long categoryId, long carbonKey, long ecoKey) {}
+
+    // One run of the ranking in order: parallel key and product id arrays
+    private static final class Chunk {
+        final long[] keys = new long[CHUNK_SIZE];
+        final long[] ids = new long[CHUNK_SIZE];
+        int count;
+    }
+
+    // Ascending by key; equal keys list the newest product first
+    private static int compare(long key, long productId, long otherKey, long otherProductId) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Long.compare(otherProductId, productId);
+    }
+
+    private static final class Ranking {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private int size;
+
+        synchronized void add(long key, long productId) {
+            if (chunks.isEmpty()) {
+                chunks.add(new Chunk());
+            }
+            int c = chunkFor(key, productId);
+            Chunk chunk = chunks.get(c);
+            int at = search(chunk, key, productId);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (chunk.count == CHUNK_SIZE) {
+                Chunk upper = new Chunk();
+                int half = CHUNK_SIZE / 2;
+                System.arraycopy(chunk.keys, half, upper.keys, 0, CHUNK_SIZE - half);
+                System.arraycopy(chunk.ids, half, upper.ids, 0, CHUNK_SIZE - half);
+                upper.count = CHUNK_SIZE - half;
+                chunk.count = half;
+                chunks.add(c + 1, upper);
+                if (at > half) {
+                    chunk = upper;
+                    at -= half;
+                }
+            }
+            System.arraycopy(chunk.keys, at, chunk.keys, at + 1, chunk.count - at);
+            System.arraycopy(chunk.ids, at, chunk.ids, at + 1, chunk.count - at);
+            chunk.keys[at] = key;
+            chunk.ids[at] = productId;
+            chunk.count++;
+            size++;
+        }
+
+        synchronized void remove(long key, long productId) {
+            if (chunks.isEmpty()) {
+                return;
+            }
+            int c = chunkFor(key, productId);
+            Chunk chunk = chunks.get(c);
+            int at = search(chunk, key, productId);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(chunk.keys, at + 1, chunk.keys, at, chunk.count - at - 1);
+            System.arraycopy(chunk.ids, at + 1, chunk.ids, at, chunk.count - at - 1);
+            chunk.count--;
+            size--;
+            if (chunk.count == 0) {
+                chunks.remove(c);
+            }
+        }
+
+        // Product ids at positions from..from+length of the ranking, or of its reverse when descending
+        synchronized RankedPage read(long from, int length, boolean descending) {
+            int start = (int) Math.min(from, size);
+            int end = Math.min(start + length, size);
+            List<Long> ids = new ArrayList<>(end - start);
+            if (descending) {
+                // Position i from the top is position size - 1 - i from the bottom
+                int low = size - end;
+                int high = size - start;
+                collect(low, high, ids);
+                Collections.reverse(ids);
+            } else {
+                collect(start, end, ids);
+            }
+            return new RankedPage(ids, size);
+        }
+
+        private void collect(int from, int to, List<Long> ids) {
+            int position = 0;
+            for (Chunk chunk : chunks) {
+                if (position >= to) {
+                    break;
+                }
+                if (position + chunk.count > from) {
+                    for (int i = Math.max(0, from - position); i < chunk.count && position + i < to; i++) {
+                        ids.add(chunk.ids[i]);
+                    }
+                }
+                position += chunk.count;
+            }
+        }
+
+        // The first chunk whose last entry is not before the given one, or the last chunk
+        private int chunkFor(long key, long productId) {
+            int low = 0;
+            int high = chunks.size() - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Chunk chunk = chunks.get(mid);
+                int last = chunk.count - 1;
+                if (compare(chunk.keys[last], chunk.ids[last], key, productId) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Index of the entry in the chunk, or -(insertion point) - 1
+        private static int search(Chunk chunk, long key, long productId) {
+            int low = 0;
+            int high = chunk.count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(chunk.keys[mid], chunk.ids[mid], key, productId);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            building = true;
+        }
+        try {
+            // Keyset by id: a product changing mid-walk cannot shift later batches
+            Long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    indexFromScan(product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            synchronized (this) {
+                ready = true;
+            }
+            log.info("Product eco ranking built: {} products in {} ms",
+                    placements.size(), System.currentTimeMillis() - start);
+        } finally {
+            // A failed scan leaves the ranking unused; ProductService falls back to the database
+            synchronized (this) {
+                building = false;
+                writtenDuringBuild.clear();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public static boolean supports(String sortBy) {
+        return ECO_SCORE.equals(sortBy) || CARBON_FOOTPRINT.equals(sortBy);
+    }
+
+    // Add, move or (for inactive products) drop a product in every ranking it belongs to
+    public synchronized void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        if (building) {
+            writtenDuringBuild.add(product.getId());
+        }
+        place(product);
+    }
+
+    private synchronized void indexFromScan(Product product) {
+        if (!writtenDuringBuild.contains(product.getId())) {
+            place(product);
+        }
+    }
+
+    private void place(Product product) {
+        Placement previous = placements.remove(product.getId());
+        if (previous != null) {
+            forEachRanking(previous.categoryId(), carbonRankings,
+                    r -> r.remove(previous.carbonKey(), product.getId()));
+            forEachRanking(previous.categoryId(), ecoRankings,
+                    r -> r.remove(previous.ecoKey(), product.getId()));
+        }
+
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            return;
+        }
+
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        Placement placement = new Placement(categoryId,
+                ProductFacetIndex.toHundredths(product.getCarbonFootprint()),
+                ecoScore(product.getCarbonFootprint(), product.getRating(), product.getReviewsCount()));
+        placements.put(product.getId(), placement);
+
+        forEachRanking(categoryId, carbonRankings,
+                r -> r.add(placement.carbonKey(), product.getId()));
+        forEachRanking(categoryId, ecoRankings,
+                r -> r.add(placement.ecoKey(), product.getId()));
+    }
+
+    // Page through a ranking; categoryId null means the whole catalog
+    public RankedPage page(String sortBy, Long categoryId, boolean descending, int page, int size) {
+        Map<Long, Ranking> rankings = ECO_SCORE.equals(sortBy) ? ecoRankings : carbonRankings;
+        Ranking ranking;
+        synchronized (this) {
+            ranking = rankings.get(categoryId == null ? ALL_CATEGORIES : categoryId);
+        }
+        if (ranking == null) {
+            return new RankedPage(List.of(), 0);
+        }
+
+        return ranking.read((long) page * size, size, descending);
+    }
+
+    /**
+     * Eco score in thousandths, higher is better: 60% carbon (100 / (1 + kg CO2e))
+     * and 40% Bayesian-averaged rating scaled to 0..100.
+     */
+    static long ecoScore(BigDecimal carbonFootprint, BigDecimal rating, Integer reviewsCount) {
+        double carbon = carbonFootprint == null ? 0 : Math.max(0, carbonFootprint.doubleValue());
+        double stars = rating == null ? 0 : rating.doubleValue();
+        int reviews = reviewsCount == null ? 0 : Math.max(0, reviewsCount);
+
+        double carbonScore = 100.0 / (1.0 + carbon);
+        double bayesianRating = (stars * reviews + PRIOR_RATING * PRIOR_REVIEWS) / (reviews + PRIOR_REVIEWS);
+        double ratingScore = bayesianRating / 5.0 * 100.0;
+
+        return Math.round((0.6 * carbonScore + 0.4 * ratingScore) * 1000);
+    }
+
+    private void forEachRanking(Long categoryId, Map<Long, Ranking> rankings, Consumer<Ranking> action) {
+        action.accept(rankings.computeIfAbsent(ALL_CATEGORIES, id -> new Ranking()));
+        if (categoryId != null) {
+            action.accept(rankings.computeIfAbsent(categoryId, id -> new Ranking()));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams a seller's catalog straight from a forward-only database cursor to the
+ * response, one row at a time, so memory use does not grow with the catalog size.
+ */
+@Service
+public class ProductExportService {
+    
+    public enum Format { NDJSON, CSV }
+    
+    private static final int FLUSH_EVERY_ROWS = ProductRepository.EXPORT_FETCH_SIZE;
+    
+    private static final String[] CSV_HEADER = {
+        "id", "name", "description", "price", "imageUrl", "category", "categoryId", "stockQuantity",
+        "carbonFootprint", "rating", "reviewsCount", "isActive", "createdAt", "updatedAt"
+    };
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Write every product of the seller to out; runs on the response-writing thread
+    @Transactional(readOnly = true)
+    public void exportSellerProducts(Long sellerId, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ObjectWriter jsonWriter = objectMapper.writerFor(ProductResponse.class);
+        
+        if (format == Format.CSV) {
+            writeCsvRow(writer, CSV_HEADER);
+        }
+        
+        try (Stream<ProductResponse> rows = productRepository.streamListingBySellerId(sellerId)) {
+            Iterator<ProductResponse> iterator = rows.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                ProductResponse row = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, toCsvFields(row));
+                } else {
+                    writer.write(jsonWriter.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+    
+    private static String[] toCsvFields(ProductResponse p) {
+        return new String[] {
+            str(p.getId()), p.getName(), p.getDescription(), str(p.getPrice()), p.getImageUrl(),
+            p.getCategory(), str(p.getCategoryId()), str(p.getStockQuantity()), str(p.getCarbonFootprint()),
+            str(p.getRating()), str(p.getReviewsCount()), str(p.getIsActive()), str(p.getCreatedAt()),
+            str(p.getUpdatedAt())
+        };
+    }
+    
+    private static String str(Object value) {
+        return value == null ? null : value.toString();
+    }
+    
+    // RFC 4180: quote fields containing separators, quotes or line breaks and double inner quotes
+    private static void writeCsvRow(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,466 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented snapshot of the active catalog used for faceted filtering.
+ * Every product gets a slot; per-category and per-bucket membership is kept in
+ * bitsets so a filter, and the facet counts next to it, are just AND + cardinality.
+ * Prices, carbon footprints and ratings are stored in hundredths.
+ *
+ * Range filters use range-encoded bitsets: for each bound in LEVELS, the set of slots
+ * whose value is at least that bound. A range is one ANDNOT of two of those sets,
+ * plus a value check only for the slots in the (at most two) levels that the range's
+ * ends fall inside. Slots of retired products go on a free list and are reused.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // Bucket lower bounds in hundredths; each bucket runs up to the next bound
+    static final long[] PRICE_BOUNDS = {0, 1_000, 2_500, 5_000, 10_000};
+    static final long[] CARBON_BOUNDS = {0, 100, 250, 500, 1_000};
+    // Rating facets are cumulative: "4 and up", "3 and up", ...
+    static final long[] RATING_MINIMUMS = {400, 300, 200, 100};
+    // Range filter levels in hundredths: 0, then 1, 1.5, 2, 2.5, 3, 4, 5, 6 and 8 times each power of ten
+    static final long[] LEVELS = levels();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Columns columns = new Columns();
+    private volatile boolean ready = false;
+
+    // Writes that arrive while a rebuild is scanning the table, replayed once it swaps in
+    private final Map<Long, Product> pendingWrites = new ConcurrentHashMap<>();
+    private volatile boolean rebuilding = false;
+
+    // Filter criteria in index units; null means "no constraint"
+    public record Criteria(String query, Long categoryId, Long minPrice, Long maxPrice,
+                           Long minCarbon, Long maxCarbon, Long minRating, boolean inStockOnly) {}
+
+    // One page of matching ids plus facet counts over the whole match
+    public record Result(List<Long> productIds, long totalHits,
+                         Map<Long, Long> categoryCounts, long[] priceCounts,
+                         long[] carbonCounts, long[] ratingCounts) {}
+
+    private static final class Columns {
+        int size;
+        long[] productIds = new long[64];
+        long[] categoryIds = new long[64];
+        long[] prices = new long[64];
+        long[] carbons = new long[64];
+        long[] ratings = new long[64];
+        Map<Long, Integer> slotById = new HashMap<>();
+        // Slots of retired products, reused before the columns grow
+        int[] freeSlots = new int[16];
+        int freeCount;
+
+        BitSet alive = new BitSet();
+        BitSet inStock = new BitSet();
+        Map<Long, BitSet> byCategory = new HashMap<>();
+        BitSet[] priceBuckets = newBitSets(PRICE_BOUNDS.length);
+        BitSet[] carbonBuckets = newBitSets(CARBON_BOUNDS.length);
+        BitSet[] ratingBuckets = newBitSets(RATING_MINIMUMS.length);
+        // priceLevels[i] holds the slots with price >= LEVELS[i]; likewise for carbon and rating
+        BitSet[] priceLevels = newBitSets(LEVELS.length);
+        BitSet[] carbonLevels = newBitSets(LEVELS.length);
+        BitSet[] ratingLevels = newBitSets(LEVELS.length);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Rebuild the column snapshot from the active products in the database
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            Columns fresh = new Columns();
+
+            // Keyset by id: a product changing mid-walk cannot shift later batches
+            Long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    put(fresh, product);
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                columns = fresh;
+                for (Product pending : pendingWrites.values()) {
+                    put(columns, pending);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Product facet index built: {} products in {} ms",
+                    fresh.alive.cardinality(), System.currentTimeMillis() - start);
+        } finally {
+            // On failure the old snapshot stays in place; it already has every pending write applied
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                pendingWrites.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Add, refresh or (for inactive products) retire a product's slot
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                pendingWrites.put(product.getId(), product);
+            }
+            put(columns, product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the criteria and count facets. Each facet dimension is counted with every
+     * filter except its own, so the sidebar shows what selecting another value would give.
+     * Results are ordered by relevance when there is a text query, otherwise by sortBy
+     * (price, carbonFootprint or rating) with newest id as the tie-breaker.
+     */
+    public Result filter(Criteria criteria, String sortBy, boolean descending, int page, int size) {
+        Map<Long, Integer> scores = criteria.query() != null && !criteria.query().isBlank()
+                ? searchIndex.match(criteria.query())
+                : null;
+
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+
+            BitSet text = scores == null ? c.alive : slotsOf(c, scores.keySet());
+            BitSet category = criteria.categoryId() == null
+                    ? c.alive
+                    : c.byCategory.getOrDefault(criteria.categoryId(), new BitSet());
+            BitSet stock = criteria.inStockOnly() ? c.inStock : c.alive;
+            BitSet price = range(c, c.priceLevels, c.prices, criteria.minPrice(), criteria.maxPrice());
+            BitSet carbon = range(c, c.carbonLevels, c.carbons, criteria.minCarbon(), criteria.maxCarbon());
+            BitSet rating = range(c, c.ratingLevels, c.ratings, criteria.minRating(), null);
+
+            BitSet matches = and(c.alive, text, category, stock, price, carbon, rating);
+
+            BitSet withoutCategory = and(c.alive, text, stock, price, carbon, rating);
+            Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<Long, BitSet> entry : c.byCategory.entrySet()) {
+                long count = intersectionCount(withoutCategory, entry.getValue());
+                if (count > 0) {
+                    categoryCounts.put(entry.getKey(), count);
+                }
+            }
+
+            long[] priceCounts = bucketCounts(and(c.alive, text, category, stock, carbon, rating), c.priceBuckets);
+            long[] carbonCounts = bucketCounts(and(c.alive, text, category, stock, price, rating), c.carbonBuckets);
+            long[] ratingCounts = bucketCounts(and(c.alive, text, category, stock, price, carbon), c.ratingBuckets);
+
+            Integer[] slots = toSlots(matches);
+            Arrays.sort(slots, ordering(c, scores, sortBy, descending));
+
+            int from = Math.min(page * size, slots.length);
+            int to = Math.min(from + size, slots.length);
+            List<Long> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(c.productIds[slots[i]]);
+            }
+
+            return new Result(ids, slots.length, categoryCounts, priceCounts, carbonCounts, ratingCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Convert a decimal amount to the index's fixed-point unit (hundredths)
+    static long toHundredths(BigDecimal value) {
+        return value == null ? 0 : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static void put(Columns c, Product product) {
+        boolean active = Boolean.TRUE.equals(product.getIsActive());
+        Integer existing = c.slotById.get(product.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            clearSlot(c, slot);
+            if (!active) {
+                // Retired: free the slot for the next new product
+                c.slotById.remove(product.getId());
+                if (c.freeCount == c.freeSlots.length) {
+                    c.freeSlots = Arrays.copyOf(c.freeSlots, c.freeCount * 2);
+                }
+                c.freeSlots[c.freeCount++] = slot;
+                return;
+            }
+        } else {
+            if (!active) {
+                return;
+            }
+            if (c.freeCount > 0) {
+                slot = c.freeSlots[--c.freeCount];
+            } else {
+                slot = c.size++;
+                ensureCapacity(c, c.size);
+            }
+            c.slotById.put(product.getId(), slot);
+        }
+
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        c.productIds[slot] = product.getId();
+        c.categoryIds[slot] = categoryId == null ? 0 : categoryId;
+        c.prices[slot] = toHundredths(product.getPrice());
+        c.carbons[slot] = toHundredths(product.getCarbonFootprint());
+        c.ratings[slot] = toHundredths(product.getRating());
+
+        c.alive.set(slot);
+        if (product.getStockQuantity() != null && product.getStockQuantity() > 0) {
+            c.inStock.set(slot);
+        }
+        if (categoryId != null) {
+            c.byCategory.computeIfAbsent(categoryId, id -> new BitSet()).set(slot);
+        }
+        c.priceBuckets[bucketOf(PRICE_BOUNDS, c.prices[slot])].set(slot);
+        c.carbonBuckets[bucketOf(CARBON_BOUNDS, c.carbons[slot])].set(slot);
+        for (int i = 0; i < RATING_MINIMUMS.length; i++) {
+            if (c.ratings[slot] >= RATING_MINIMUMS[i]) {
+                c.ratingBuckets[i].set(slot);
+            }
+        }
+        setLevels(c.priceLevels, c.prices[slot], slot);
+        setLevels(c.carbonLevels, c.carbons[slot], slot);
+        setLevels(c.ratingLevels, c.ratings[slot], slot);
+    }
+
+    private static void setLevels(BitSet[] levels, long value, int slot) {
+        // Level 0 takes every slot, negative values included
+        levels[0].set(slot);
+        for (int i = 1; i < LEVELS.length && value >= LEVELS[i]; i++) {
+            levels[i].set(slot);
+        }
+    }
+
+    private static void clearSlot(Columns c, int slot) {
+        c.alive.clear(slot);
+        c.inStock.clear(slot);
+        BitSet category = c.byCategory.get(c.categoryIds[slot]);
+        if (category != null) {
+            category.clear(slot);
+        }
+        for (BitSet bucket : c.priceBuckets) bucket.clear(slot);
+        for (BitSet bucket : c.carbonBuckets) bucket.clear(slot);
+        for (BitSet bucket : c.ratingBuckets) bucket.clear(slot);
+        for (BitSet level : c.priceLevels) level.clear(slot);
+        for (BitSet level : c.carbonLevels) level.clear(slot);
+        for (BitSet level : c.ratingLevels) level.clear(slot);
+    }
+
+    private static void ensureCapacity(Columns c, int required) {
+        if (required <= c.productIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, c.productIds.length * 2);
+        c.productIds = Arrays.copyOf(c.productIds, capacity);
+        c.categoryIds = Arrays.copyOf(c.categoryIds, capacity);
+        c.prices = Arrays.copyOf(c.prices, capacity);
+        c.carbons = Arrays.copyOf(c.carbons, capacity);
+        c.ratings = Arrays.copyOf(c.ratings, capacity);
+    }
+
+    private static int bucketOf(long[] bounds, long value) {
+        int bucket = 0;
+        for (int i = 1; i < bounds.length; i++) {
+            if (value >= bounds[i]) {
+                bucket = i;
+            }
+        }
+        return bucket;
+    }
+
+    // Slots with min <= value <= max: whole levels by bitset, values checked only in the two edge levels
+    private static BitSet range(Columns c, BitSet[] levels, long[] column, Long min, Long max) {
+        if (min == null && max == null) {
+            return c.alive;
+        }
+
+        BitSet result;
+        if (min == null) {
+            result = (BitSet) c.alive.clone();
+        } else {
+            int low = levelOf(min);
+            result = low + 1 < LEVELS.length ? (BitSet) levels[low + 1].clone() : new BitSet();
+            BitSet edge = levelOnly(levels, low);
+            for (int slot = edge.nextSetBit(0); slot >= 0; slot = edge.nextSetBit(slot + 1)) {
+                if (column[slot] >= min) {
+                    result.set(slot);
+                }
+            }
+        }
+
+        if (max != null) {
+            int high = levelOf(max);
+            if (high + 1 < LEVELS.length) {
+                result.andNot(levels[high + 1]);
+            }
+            BitSet edge = levelOnly(levels, high);
+            for (int slot = edge.nextSetBit(0); slot >= 0; slot = edge.nextSetBit(slot + 1)) {
+                if (column[slot] > max) {
+                    result.clear(slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Index of the level a value falls in: the last bound not above it (0 for anything below the first)
+    private static int levelOf(long value) {
+        int index = Arrays.binarySearch(LEVELS, value);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    // Slots whose value is in level i and not in a higher one
+    private static BitSet levelOnly(BitSet[] levels, int i) {
+        BitSet only = (BitSet) levels[i].clone();
+        if (i + 1 < LEVELS.length) {
+            only.andNot(levels[i + 1]);
+        }
+        return only;
+    }
+
+    private static BitSet slotsOf(Columns c, Iterable<Long> productIds) {
+        BitSet result = new BitSet(c.size);
+        for (Long id : productIds) {
+            Integer slot = c.slotById.get(id);
+            if (slot != null) {
+                result.set(slot);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet and(BitSet first, BitSet... rest) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : rest) {
+            if (other != first) {
+                result.and(other);
+            }
+        }
+        return result;
+    }
+
+    private static long intersectionCount(BitSet left, BitSet right) {
+        BitSet copy = (BitSet) left.clone();
+        copy.and(right);
+        return copy.cardinality();
+    }
+
+    private static long[] bucketCounts(BitSet base, BitSet[] buckets) {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = intersectionCount(base, buckets[i]);
+        }
+        return counts;
+    }
+
+    private static Integer[] toSlots(BitSet bits) {
+        Integer[] slots = new Integer[bits.cardinality()];
+        int i = 0;
+        for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+            slots[i++] = slot;
+        }
+        return slots;
+    }
+
+    private static Comparator<Integer> ordering(Columns c, Map<Long, Integer> scores, String sortBy, boolean descending) {
+        Comparator<Integer> newestFirst = Comparator.comparingLong((Integer slot) -> c.productIds[slot]).reversed();
+
+        Comparator<Integer> primary;
+        if (scores != null) {
+            primary = Comparator.comparingInt((Integer slot) -> scores.getOrDefault(c.productIds[slot], 0)).reversed();
+        } else if ("price".equals(sortBy)) {
+            primary = Comparator.comparingLong(slot -> c.prices[slot]);
+        } else if ("carbonFootprint".equals(sortBy)) {
+            primary = Comparator.comparingLong(slot -> c.carbons[slot]);
+        } else if ("rating".equals(sortBy)) {
+            primary = Comparator.comparingLong(slot -> c.ratings[slot]);
+        } else {
+            return newestFirst;
+        }
+
+        if (scores == null && descending) {
+            primary = primary.reversed();
+        }
+        return primary.thenComparing(newestFirst);
+    }
+
+    private static long[] levels() {
+        long[] steps = {10, 15, 20, 25, 30, 40, 50, 60, 80};
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        for (long scale = 1; scale <= 10_000_000L; scale *= 10) {
+            for (long step : steps) {
+                bounds.add(step * scale);
+            }
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+}
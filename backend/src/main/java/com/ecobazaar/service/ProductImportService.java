@@ -0,0 +1,316 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductImportResponse;
+import com.ecobazaar.dto.ProductRequest;
+import com.ecobazaar.entity.Category;
+import com.ecobazaar.repository.CategoryRepository;
+import com.ecobazaar.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import for sellers. Rows are parsed from the upload stream, validated,
+ * and inserted with plain JDBC batches (Hibernate cannot batch IDENTITY inserts).
+ * Each batch commits in its own short transaction; row-level problems are reported
+ * back instead of failing the whole import.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format { CSV, JSON }
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(name, description, price, image_url, category_id, seller_id, stock_quantity, carbon_footprint, "
+            + "rating, reviews_count, is_active, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${product.import.batch-size:1000}")
+    private int batchSize;
+
+    // Import every row of the upload for the seller
+    public ProductImportResponse importProducts(Long sellerId, Format format, InputStream in) throws IOException {
+        if (!userRepository.existsById(sellerId)) {
+            throw new RuntimeException("Seller not found with id: " + sellerId);
+        }
+
+        // Category ids are resolved once per import rather than once per row
+        Set<Long> categoryIds = categoryRepository.findAll().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+
+        Long lastIdBefore = productService.getMaxProductId();
+        Batch batch = new Batch(sellerId, categoryIds);
+
+        if (format == Format.CSV) {
+            readCsv(in, batch);
+        } else {
+            readJson(in, batch);
+        }
+        batch.flush();
+
+        productService.onProductsImported(sellerId, lastIdBefore);
+        return batch.response;
+    }
+
+    // Collects valid rows and writes them in JDBC batches
+    private class Batch {
+        private final Long sellerId;
+        private final Set<Long> categoryIds;
+        private final List<ProductRequest> rows = new ArrayList<>();
+        private final List<Integer> rowNumbers = new ArrayList<>();
+        private final ProductImportResponse response = new ProductImportResponse();
+
+        Batch(Long sellerId, Set<Long> categoryIds) {
+            this.sellerId = sellerId;
+            this.categoryIds = categoryIds;
+        }
+
+        void accept(int rowNumber, ProductRequest request) {
+            response.setTotalRows(response.getTotalRows() + 1);
+
+            String problem = validate(request);
+            if (problem != null) {
+                reject(rowNumber, problem);
+                return;
+            }
+
+            rows.add(request);
+            rowNumbers.add(rowNumber);
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(int rowNumber, String message) {
+            response.setFailed(response.getFailed() + 1);
+            if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+                response.getErrors().add(new ProductImportResponse.RowError(rowNumber, message));
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                            ps.setString(1, row.getName());
+                            ps.setString(2, row.getDescription());
+                            ps.setBigDecimal(3, row.getPrice());
+                            ps.setString(4, row.getImageUrl());
+                            if (row.getCategoryId() != null) {
+                                ps.setLong(5, row.getCategoryId());
+                            } else {
+                                ps.setNull(5, Types.BIGINT);
+                            }
+                            ps.setLong(6, sellerId);
+                            ps.setInt(7, row.getStockQuantity() != null ? row.getStockQuantity() : 0);
+                            ps.setBigDecimal(8, row.getCarbonFootprint() != null ? row.getCarbonFootprint() : BigDecimal.ZERO);
+                            ps.setBigDecimal(9, BigDecimal.ZERO);
+                            ps.setInt(10, 0);
+                            ps.setBoolean(11, row.getIsActive() == null || row.getIsActive());
+                            ps.setTimestamp(12, now);
+                            ps.setTimestamp(13, now);
+                        }));
+                response.setImported(response.getImported() + rows.size());
+            } catch (DataAccessException e) {
+                // The whole batch rolled back; report each of its rows
+                String message = "Batch insert failed: " + e.getMostSpecificCause().getMessage();
+                for (Integer rowNumber : rowNumbers) {
+                    reject(rowNumber, message);
+                }
+            }
+
+            rows.clear();
+            rowNumbers.clear();
+        }
+
+        private String validate(ProductRequest request) {
+            Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                return violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            }
+            if (request.getCategoryId() != null && !categoryIds.contains(request.getCategoryId())) {
+                return "Category not found with id: " + request.getCategoryId();
+            }
+            return null;
+        }
+    }
+
+    // JSON input: either one top-level array of products or newline-delimited objects
+    private void readJson(InputStream in, Batch batch) throws IOException {
+        int rowNumber = 0;
+        try (MappingIterator<ProductRequest> iterator = objectMapper.readerFor(ProductRequest.class).readValues(in)) {
+            while (true) {
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    rowNumber++;
+                    batch.accept(rowNumber, iterator.nextValue());
+                } catch (JsonProcessingException e) {
+                    // Malformed JSON cannot be resynchronised reliably; report it and stop reading
+                    batch.reject(rowNumber == 0 ? 1 : rowNumber, "Invalid JSON: " + e.getOriginalMessage());
+                    break;
+                }
+            }
+        }
+    }
+
+    // CSV input (RFC 4180) with a header row naming ProductRequest fields
+    private void readCsv(InputStream in, Batch batch) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return;
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        Set<String> unknown = new HashSet<>(columns.keySet());
+        unknown.removeAll(Set.of("name", "description", "price", "imageUrl", "categoryId",
+                "stockQuantity", "carbonFootprint", "isActive"));
+        if (!unknown.isEmpty()) {
+            throw new RuntimeException("Unknown CSV columns: " + unknown);
+        }
+
+        int rowNumber = 0;
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            rowNumber++;
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                rowNumber--;
+                continue;
+            }
+
+            ProductRequest request = new ProductRequest();
+            try {
+                String value;
+                if ((value = field(record, columns, "name")) != null) request.setName(value);
+                if ((value = field(record, columns, "description")) != null) request.setDescription(value);
+                if ((value = field(record, columns, "price")) != null) request.setPrice(new BigDecimal(value));
+                if ((value = field(record, columns, "imageUrl")) != null) request.setImageUrl(value);
+                if ((value = field(record, columns, "categoryId")) != null) request.setCategoryId(Long.parseLong(value));
+                if ((value = field(record, columns, "stockQuantity")) != null) request.setStockQuantity(Integer.parseInt(value));
+                if ((value = field(record, columns, "carbonFootprint")) != null) request.setCarbonFootprint(new BigDecimal(value));
+                if ((value = field(record, columns, "isActive")) != null) request.setIsActive(Boolean.parseBoolean(value));
+            } catch (NumberFormatException e) {
+                batch.response.setTotalRows(batch.response.getTotalRows() + 1);
+                batch.reject(rowNumber, "Invalid number: " + e.getMessage());
+                continue;
+            }
+            batch.accept(rowNumber, request);
+        }
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // Read one CSV record; quoted fields may contain commas, quotes ("") and line breaks
+    private static List<String> readCsvRecord(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
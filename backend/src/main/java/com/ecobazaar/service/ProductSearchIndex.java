@@ -0,0 +1,271 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the name and description of active products.
+ * Built once the application is ready and kept current by ProductService writes.
+ * Until the first build completes, isReady() returns false and callers should
+ * fall back to the repository query.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weighted term frequency)
+    private NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // productId -> terms indexed for it, so a document can be removed cleanly
+    private Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    // Writes that arrive while a rebuild is scanning the table, replayed once it swaps in
+    private final Map<Long, Product> pendingWrites = new ConcurrentHashMap<>();
+    private volatile boolean rebuilding = false;
+
+    // Result of a search: one page of product ids in relevance order plus the total hit count
+    public record SearchHits(List<Long> productIds, long totalHits) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Rebuild the whole index from the active products in the database
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        try {
+            NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+            Map<Long, Set<String>> newDocumentTerms = new HashMap<>();
+
+            // Keyset by id: a product changing mid-walk cannot shift later batches
+            Long lastId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    addDocument(newPostings, newDocumentTerms, product.getId(), product.getName(), product.getDescription());
+                    lastId = product.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                postings = newPostings;
+                documentTerms = newDocumentTerms;
+                for (Product pending : pendingWrites.values()) {
+                    applyWrite(pending);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Product search index built: {} products, {} terms in {} ms",
+                    newDocumentTerms.size(), newPostings.size(), System.currentTimeMillis() - start);
+        } finally {
+            // On failure the old index stays in place; it already has every pending write applied
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                pendingWrites.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Add or refresh a product; inactive products are removed from the index
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                pendingWrites.put(product.getId(), product);
+            }
+            applyWrite(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Every query term must match (AND). The last term is matched as a prefix so
+     * results keep up with search-as-you-type. Ties are broken by newest id first.
+     */
+    public SearchHits search(String query, int page, int size) {
+        Map<Long, Integer> scores = match(query);
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Integer.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : Long.compare(b.getKey(), a.getKey());
+        });
+
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (Map.Entry<Long, Integer> entry : ranked.subList(from, to)) {
+            ids.add(entry.getKey());
+        }
+        return new SearchHits(ids, ranked.size());
+    }
+
+    // All matching product ids with their relevance scores, unordered
+    public Map<Long, Integer> match(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Integer> scores;
+        lock.readLock().lock();
+        try {
+            scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = i == terms.size() - 1;
+                Map<Long, Integer> termScores = matchTerm(terms.get(i), prefix);
+                scores = scores == null ? termScores : intersect(scores, termScores);
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores;
+    }
+
+    // Split text into lower-case alphanumeric tokens
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        StringBuilder current = new StringBuilder();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private Map<Long, Integer> matchTerm(String term, boolean prefix) {
+        if (!prefix) {
+            Map<Long, Integer> exact = postings.get(term);
+            return exact == null ? Collections.emptyMap() : new HashMap<>(exact);
+        }
+
+        Map<Long, Integer> merged = new HashMap<>();
+        for (Map<Long, Integer> docs : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            docs.forEach((id, weight) -> merged.merge(id, weight, Integer::sum));
+        }
+        return merged;
+    }
+
+    private static Map<Long, Integer> intersect(Map<Long, Integer> left, Map<Long, Integer> right) {
+        Map<Long, Integer> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Integer> larger = smaller == left ? right : left;
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : smaller.entrySet()) {
+            Integer other = larger.get(entry.getKey());
+            if (other != null) {
+                result.put(entry.getKey(), entry.getValue() + other);
+            }
+        }
+        return result;
+    }
+
+    private static void addDocument(NavigableMap<String, Map<Long, Integer>> postings,
+                                    Map<Long, Set<String>> documentTerms,
+                                    Long productId, String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(name)) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(description)) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(productId, weight));
+        documentTerms.put(productId, new HashSet<>(weights.keySet()));
+    }
+
+    private void applyWrite(Product product) {
+        removeDocument(product.getId());
+        if (Boolean.TRUE.equals(product.getIsActive())) {
+            addDocument(postings, documentTerms, product.getId(), product.getName(), product.getDescription());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
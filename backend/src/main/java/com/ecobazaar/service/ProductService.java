@@ -1,21 +1,37 @@
 package com.ecobazaar.service;
 
+import com.ecobazaar.dto.FacetCount;
+import com.ecobazaar.dto.ProductFilterRequest;
+import com.ecobazaar.dto.ProductFilterResponse;
 import com.ecobazaar.dto.ProductRequest;
 import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.dto.ProductSliceResponse;
+import com.ecobazaar.dto.SellerStatsResponse;
 import com.ecobazaar.entity.Category;
 import com.ecobazaar.entity.Product;
 import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.CartRepository;
 import com.ecobazaar.repository.CategoryRepository;
 import com.ecobazaar.repository.ProductRepository;
 import com.ecobazaar.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class ProductService {
@@ -29,37 +45,162 @@ public class ProductService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private ProductSearchIndex searchIndex;
+    
+    @Autowired
+    private ProductDetailCache detailCache;
+    
+    @Autowired
+    private ProductFacetIndex facetIndex;
+    
+    @Autowired
+    private ProductEcoRanking ecoRanking;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private SellerStatsTracker sellerStats;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private StockReservations stockReservations;
+    
     // Get all active products (for customers)
     public Page<ProductResponse> getAllActiveProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findByIsActiveTrue(pageable);
-        return products.map(this::convertToProductResponse);
+        Page<ProductResponse> ranked = rankedPage(null, pageable);
+        if (ranked != null) {
+            return ranked;
+        }
+        return productRepository.findActiveListing(withDatabaseSort(pageable));
     }
     
-    // Search products
+    // Search products (served from the in-memory index once it has warmed up)
     public Page<ProductResponse> searchProducts(String query, Pageable pageable) {
-        Page<Product> products = productRepository.findByNameContainingIgnoreCaseAndIsActiveTrue(query, pageable);
-        return products.map(this::convertToProductResponse);
+        if (searchIndex.isReady()) {
+            ProductSearchIndex.SearchHits hits = searchIndex.search(query, pageable.getPageNumber(), pageable.getPageSize());
+            return new PageImpl<>(loadInOrder(hits.productIds()), pageable, hits.totalHits());
+        }
+        
+        return productRepository.searchActiveListingByName(query, withDatabaseSort(pageable));
     }
     
     // Get products by category
     public Page<ProductResponse> getProductsByCategory(Long categoryId, Pageable pageable) {
-        Page<Product> products = productRepository.findByCategoryIdAndIsActiveTrue(categoryId, pageable);
-        return products.map(this::convertToProductResponse);
+        Page<ProductResponse> ranked = rankedPage(categoryId, pageable);
+        if (ranked != null) {
+            return ranked;
+        }
+        return productRepository.findActiveListingByCategoryId(categoryId, withDatabaseSort(pageable));
+    }
+    
+    // Keyset (cursor) page of active products, optionally within a category; never runs a count query
+    public ProductSliceResponse getActiveProductsAfter(Long categoryId, String sortBy, boolean descending,
+                                                       String after, int size) {
+        if (!ProductCursor.SORTABLE_FIELDS.contains(sortBy)) {
+            throw new RuntimeException("Unsupported sort field for cursor pagination: " + sortBy);
+        }
+        
+        Object afterKey = null;
+        Long afterId = null;
+        if (after != null && !after.isEmpty()) {
+            ProductCursor cursor = ProductCursor.decode(after, sortBy, descending);
+            afterKey = cursor.getSortKey();
+            afterId = cursor.getId();
+        }
+        
+        // Fetch one extra row to learn whether another page exists
+        List<ProductResponse> rows = productRepository.findActiveListingAfter(categoryId, sortBy, descending, afterKey, afterId, size + 1);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        
+        String nextCursor = hasNext
+                ? ProductCursor.after(rows.get(rows.size() - 1), sortBy, descending).encode()
+                : null;
+        return new ProductSliceResponse(rows, nextCursor, hasNext);
+    }
+    
+    // Whether the in-memory facet index has finished its first build
+    public boolean isFilterReady() {
+        return facetIndex.isReady() && searchIndex.isReady();
+    }
+    
+    // Combined text / category / price / carbon / rating / stock filter with facet counts
+    public ProductFilterResponse filterProducts(ProductFilterRequest request, String sortBy, boolean descending,
+                                                int page, int size) {
+        ProductFacetIndex.Criteria criteria = new ProductFacetIndex.Criteria(
+                request.getQuery(),
+                request.getCategoryId(),
+                toHundredths(request.getMinPrice()),
+                toHundredths(request.getMaxPrice()),
+                toHundredths(request.getMinCarbon()),
+                toHundredths(request.getMaxCarbon()),
+                toHundredths(request.getMinRating()),
+                Boolean.TRUE.equals(request.getInStock()));
+        
+        ProductFacetIndex.Result result = facetIndex.filter(criteria, sortBy, descending, page, size);
+        
+        ProductFilterResponse response = new ProductFilterResponse();
+        response.setProducts(loadInOrder(result.productIds()));
+        response.setCurrentPage(page);
+        response.setTotalItems(result.totalHits());
+        response.setTotalPages(size == 0 ? 0 : (int) ((result.totalHits() + size - 1) / size));
+        
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Category category : categoryRepository.findAllById(result.categoryCounts().keySet())) {
+            categoryNames.put(category.getId(), category.getName());
+        }
+        List<FacetCount> categoryFacets = new ArrayList<>();
+        result.categoryCounts().forEach((id, count) ->
+                categoryFacets.add(new FacetCount(id, categoryNames.get(id), null, null, count)));
+        response.setCategoryFacets(categoryFacets);
+        
+        response.setPriceFacets(rangeFacets(ProductFacetIndex.PRICE_BOUNDS, result.priceCounts()));
+        response.setCarbonFacets(rangeFacets(ProductFacetIndex.CARBON_BOUNDS, result.carbonCounts()));
+        
+        List<FacetCount> ratingFacets = new ArrayList<>();
+        for (int i = 0; i < ProductFacetIndex.RATING_MINIMUMS.length; i++) {
+            BigDecimal min = BigDecimal.valueOf(ProductFacetIndex.RATING_MINIMUMS[i], 2);
+            ratingFacets.add(new FacetCount(null, min.stripTrailingZeros().toPlainString() + "+", min, null,
+                    result.ratingCounts()[i]));
+        }
+        response.setRatingFacets(ratingFacets);
+        
+        return response;
     }
     
-    // Get product by ID
+    // Get product by ID (cached; entries are dropped after every product write)
     public ProductResponse getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-        return convertToProductResponse(product);
+        return detailCache.get(id, productId -> productRepository.findListingById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId)));
+    }
+    
+    // Version of the catalog, the same on every node; changes after every committed product write
+    public String getCatalogVersion() {
+        return catalogVersion.current();
+    }
+    
+    // Product detail cache counters
+    public Map<String, Object> getDetailCacheStats() {
+        return detailCache.getStats();
     }
     
     // Get seller's products
     public List<ProductResponse> getSellerProducts(Long sellerId) {
-        List<Product> products = productRepository.findBySellerId(sellerId);
-        return products.stream()
-                .map(this::convertToProductResponse)
-                .collect(Collectors.toList());
+        return productRepository.findListingBySellerId(sellerId);
+    }
+    
+    // Get one page of a seller's products
+    public Page<ProductResponse> getSellerProducts(Long sellerId, Pageable pageable) {
+        return productRepository.findListingBySellerId(sellerId, pageable);
     }
     
     // Create product (seller only)
@@ -85,6 +226,8 @@ public class ProductService {
         }
         
         Product savedProduct = productRepository.save(product);
+        afterCommit(() -> onProductWritten(savedProduct, null));
+        afterCommit(() -> stockReservations.register(savedProduct.getId(), savedProduct.getStockQuantity()));
         return convertToProductResponse(savedProduct);
     }
     
@@ -95,6 +238,10 @@ public class ProductService {
         if (product == null) {
             throw new RuntimeException("Product not found or you don't have permission to edit this product");
         }
+        SellerStatsTracker.Contribution before = SellerStatsTracker.Contribution.of(product);
+        long centsBefore = MinorUnits.cents(product.getPrice());
+        long gramsBefore = MinorUnits.grams(product.getCarbonFootprint());
+        int stockBefore = product.getStockQuantity() == null ? 0 : product.getStockQuantity();
         
         product.setName(request.getName());
         product.setDescription(request.getDescription());
@@ -110,7 +257,23 @@ public class ProductService {
             product.setCategory(category);
         }
         
+        // Stock moves by the edit's delta, so units sold but not yet written back are not overwritten
+        int stockDelta = (request.getStockQuantity() == null ? 0 : request.getStockQuantity()) - stockBefore;
+        if (stockDelta != 0) {
+            stockReservations.adjust(productId, stockDelta);
+            productRepository.adjustStock(productId, stockDelta, LocalDateTime.now());
+        }
+        
         Product savedProduct = productRepository.save(product);
+        afterCommit(() -> onProductWritten(savedProduct, before));
+        
+        // Carts holding the product keep their running totals at its current price
+        long cents = MinorUnits.cents(savedProduct.getPrice());
+        long grams = MinorUnits.grams(savedProduct.getCarbonFootprint());
+        if (cents != centsBefore || grams != gramsBefore) {
+            cartRepository.repriceProduct(productId, cents - centsBefore, grams - gramsBefore);
+            afterCommit(() -> cartStore.reprice(productId, cents, grams));
+        }
         return convertToProductResponse(savedProduct);
     }
     
@@ -121,10 +284,125 @@ public class ProductService {
         if (product == null) {
             throw new RuntimeException("Product not found or you don't have permission to delete this product");
         }
+        SellerStatsTracker.Contribution before = SellerStatsTracker.Contribution.of(product);
         
         // Soft delete
         product.setIsActive(false);
-        productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        afterCommit(() -> onProductWritten(savedProduct, before));
+    }
+    
+    private static Long toHundredths(BigDecimal value) {
+        return value == null ? null : ProductFacetIndex.toHundredths(value);
+    }
+    
+    // Facet entries for consecutive [bound, nextBound) ranges; the last range is open-ended
+    private static List<FacetCount> rangeFacets(long[] bounds, long[] counts) {
+        List<FacetCount> facets = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i++) {
+            BigDecimal min = BigDecimal.valueOf(bounds[i], 2);
+            BigDecimal max = i + 1 < bounds.length ? BigDecimal.valueOf(bounds[i + 1], 2) : null;
+            String label = max == null
+                    ? min.stripTrailingZeros().toPlainString() + "+"
+                    : min.stripTrailingZeros().toPlainString() + "-" + max.stripTrailingZeros().toPlainString();
+            facets.add(new FacetCount(null, label, min, max, counts[i]));
+        }
+        return facets;
+    }
+    
+    // Load products by id, keeping the order of the given ids (e.g. relevance order)
+    private List<ProductResponse> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<Long, ProductResponse> byId = new HashMap<>();
+        for (ProductResponse product : productRepository.findListingByIdIn(ids)) {
+            byId.put(product.getId(), product);
+        }
+        
+        List<ProductResponse> responses = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductResponse product = byId.get(id);
+            if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+                responses.add(product);
+            }
+        }
+        return responses;
+    }
+    
+    // Serve ecoScore / carbonFootprint ordering from the in-memory ranking; null if it does not apply
+    private Page<ProductResponse> rankedPage(Long categoryId, Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        if (order == null || !ProductEcoRanking.supports(order.getProperty()) || !ecoRanking.isReady()) {
+            return null;
+        }
+        
+        ProductEcoRanking.RankedPage ranked = ecoRanking.page(order.getProperty(), categoryId,
+                order.isDescending(), pageable.getPageNumber(), pageable.getPageSize());
+        return new PageImpl<>(loadInOrder(ranked.productIds()), pageable, ranked.total());
+    }
+    
+    // ecoScore is not a column; until the ranking is ready the database orders by carbon footprint instead
+    private static Pageable withDatabaseSort(Pageable pageable) {
+        Sort.Order order = pageable.getSort().getOrderFor(ProductEcoRanking.ECO_SCORE);
+        if (order == null) {
+            return pageable;
+        }
+        Sort sort = Sort.by(order.isDescending() ? Sort.Direction.ASC : Sort.Direction.DESC,
+                ProductEcoRanking.CARBON_FOOTPRINT);
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+    
+    // Highest product id so far; bulk imports use it to find the rows they inserted
+    public Long getMaxProductId() {
+        return productRepository.findMaxId();
+    }
+    
+    // Bring the in-memory read structures up to date with rows a bulk import inserted over JDBC
+    public void onProductsImported(Long sellerId, Long afterId) {
+        Long lastId = afterId;
+        Slice<Product> slice;
+        do {
+            slice = productRepository.findBySellerIdAndIdGreaterThanOrderByIdAsc(
+                    sellerId, lastId, PageRequest.of(0, 500));
+            for (Product product : slice.getContent()) {
+                onProductWritten(product, null);
+                lastId = product.getId();
+            }
+        } while (slice.hasNext());
+    }
+    
+    // Dashboard aggregates for a seller
+    public SellerStatsResponse getSellerStats(Long sellerId) {
+        return sellerStats.getStats(sellerId);
+    }
+    
+    // Keep the in-memory read structures in line with a committed product write;
+    // before is the product's state prior to the write (null for new products)
+    private void onProductWritten(Product product, SellerStatsTracker.Contribution before) {
+        searchIndex.index(product);
+        facetIndex.index(product);
+        ecoRanking.index(product);
+        catalogVersion.invalidate();
+        if (product.getSeller() != null) {
+            sellerStats.apply(product.getSeller().getId(), before, SellerStatsTracker.Contribution.of(product));
+        }
+        detailCache.invalidate(product.getId());
+    }
+    
+    // Run in-memory index updates only once the surrounding transaction has committed
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
     
     // Helper method to convert Product to ProductResponse
@@ -4,11 +4,14 @@ import com.ecobazaar.dto.ProfileResponse;
 import com.ecobazaar.dto.ProfileUpdateRequest;
 import com.ecobazaar.entity.User;
 import com.ecobazaar.repository.UserRepository;
+import com.ecobazaar.security.PasswordHashing;
+import com.ecobazaar.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
 @Service
 public class ProfileService {
     
@@ -16,7 +19,13 @@ public class ProfileService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashing passwordHashing;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private PrincipalCache principalCache;
     
     // Get user profile
     public ProfileResponse getUserProfile(Long userId) {
@@ -42,23 +51,29 @@ public class ProfileService {
         user.setNotificationSustainability(request.getNotificationSustainability());
         
         User savedUser = userRepository.save(user);
+        principalCache.invalidate(savedUser.getEmail());
         return convertToProfileResponse(savedUser);
     }
     
-    // Update password
-    @Transactional
+    // Update password; hashing runs outside any transaction, then one conditional update
     public void updatePassword(Long userId, String currentPassword, String newPassword) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         
         // Verify current password
-        if (!passwordEncoder.matches(currentPassword, user.getPasswordHash())) {
+        if (!passwordHashing.matches(currentPassword, user.getPasswordHash())) {
             throw new RuntimeException("Current password is incorrect");
         }
         
-        // Update password
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        // Update password, unless it was changed while we were hashing
+        String newHash = passwordHashing.encode(newPassword);
+        if (userRepository.updatePasswordHash(userId, user.getPasswordHash(), newHash, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Password was changed concurrently, please try again");
+        }
+        principalCache.invalidate(user.getEmail());
+        
+        // Sign out every session that was opened with the old password
+        refreshTokenService.revokeAllSessions(userId);
     }
     
     // Helper method to convert User to ProfileResponse
@@ -73,6 +88,7 @@ public class ProfileService {
         response.setNotificationOrders(user.getNotificationOrders());
         response.setNotificationPromotions(user.getNotificationPromotions());
         response.setNotificationSustainability(user.getNotificationSustainability());
+        response.setPurchasedCarbonFootprint(MinorUnits.fromGrams(user.getPurchasedCarbonGrams()));
         response.setCreatedAt(user.getCreatedAt());
         
         return response;
@@ -0,0 +1,190 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.RevokedAccessToken;
+import com.ecobazaar.entity.RefreshToken;
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.RefreshTokenRepository;
+import com.ecobazaar.repository.UserRepository;
+import com.ecobazaar.security.JwtUtils;
+import com.ecobazaar.security.PrincipalCache;
+import com.ecobazaar.security.RevokedTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Issues short-lived access tokens together with long-lived, single-use refresh
+ * tokens. A refresh rotates the token: the old row is marked rotated and a new row in
+ * the same family is issued. Presenting a rotated or revoked token again means it
+ * leaked, so the whole family is revoked. Revoking rows also revokes the access tokens
+ * issued with them, through RevokedTokens, so a logout, a password change or a
+ * disabled account takes effect at once and not when the access token expires.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private RevokedTokens revokedTokens;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${jwt.refresh-expiration-ms:1209600000}")
+    private long refreshExpirationMs;
+
+    // An access token and the refresh token that renews it
+    public record TokenPair(String accessToken, String refreshToken, Long userId, String email, Role.RoleName role) {}
+
+    // Start a new session for the user signed in with the given role
+    public TokenPair issue(Long userId, String email, Role.RoleName role) {
+        return transactionTemplate.execute(status ->
+                issue(userRepository.getReferenceById(userId), email, role, UUID.randomUUID().toString()));
+    }
+
+    // Exchange a refresh token for a new pair; the presented token cannot be used again
+    public TokenPair rotate(String refreshToken) {
+        TokenPair pair = transactionTemplate.execute(status -> {
+            RefreshToken current = refreshTokenRepository.findForRotation(hash(refreshToken))
+                    .orElse(null);
+            if (current == null) {
+                return null;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            User user = current.getUser();
+            if (current.getRotatedAt() != null || current.getRevokedAt() != null) {
+                log.warn("Refresh token reused for user {}; revoking its session", user.getId());
+                revoke(refreshTokenRepository.findLiveByFamilyId(current.getFamilyId()), now);
+                return null;
+            }
+            if (!current.getExpiresAt().isAfter(now)) {
+                return null;
+            }
+            // Roles come from the principal cache; the user row itself is already loaded
+            if (!user.getEnabled() || principalCache.get(user.getEmail())
+                    .filter(account -> account.hasRole(current.getRole())).isEmpty()) {
+                revoke(refreshTokenRepository.findLiveByFamilyId(current.getFamilyId()), now);
+                return null;
+            }
+
+            current.setRotatedAt(now);
+            return issue(user, user.getEmail(), current.getRole(), current.getFamilyId());
+        });
+
+        if (pair == null) {
+            throw new RuntimeException("Invalid or expired refresh token");
+        }
+        return pair;
+    }
+
+    // End the session the refresh token belongs to
+    public void revokeSession(String refreshToken) {
+        transactionTemplate.executeWithoutResult(status -> refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> revoke(refreshTokenRepository.findLiveByFamilyId(token.getFamilyId()),
+                        LocalDateTime.now())));
+    }
+
+    // End every session of the user, e.g. after a password change or when the account is disabled
+    public void revokeAllSessions(Long userId) {
+        transactionTemplate.executeWithoutResult(status ->
+                revoke(refreshTokenRepository.findLiveByUserId(userId), LocalDateTime.now()));
+    }
+
+    // Refresh tokens past their expiry are of no further use
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval-ms:3600000}",
+            initialDelayString = "${jwt.refresh-cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        Integer deleted = transactionTemplate.execute(status ->
+                refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Expired refresh tokens deleted: {}", deleted);
+        }
+    }
+
+    // user may be an uninitialized reference; only its id is read
+    private TokenPair issue(User user, String email, Role.RoleName role, String familyId) {
+        long accessTokenId = RANDOM.nextLong();
+        LocalDateTime now = LocalDateTime.now();
+        String accessToken = jwtUtils.generateJwtToken(email, role.toString(), accessTokenId);
+
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        RefreshToken row = new RefreshToken();
+        row.setUser(user);
+        row.setTokenHash(hash(refreshToken));
+        row.setFamilyId(familyId);
+        row.setRole(role);
+        row.setAccessTokenId(accessTokenId);
+        // The token's own exp is rounded down to seconds; a little later is on the safe side
+        row.setAccessExpiresAt(now.plusNanos((jwtUtils.getExpirationMs() + 1000) * 1_000_000L));
+        row.setExpiresAt(now.plusNanos(refreshExpirationMs * 1_000_000L));
+        refreshTokenRepository.save(row);
+
+        return new TokenPair(accessToken, refreshToken, user.getId(), email, role);
+    }
+
+    // Mark the rows revoked and, once committed, reject their access tokens on this node
+    private void revoke(List<RefreshToken> rows, LocalDateTime now) {
+        List<RevokedAccessToken> revoked = new ArrayList<>();
+        for (RefreshToken row : rows) {
+            row.setRevokedAt(now);
+            if (row.getAccessExpiresAt().isAfter(now)) {
+                revoked.add(new RevokedAccessToken(row.getAccessTokenId(), row.getAccessExpiresAt(), now));
+            }
+        }
+
+        if (!revoked.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revokedTokens.revokeAll(revoked);
+                }
+            });
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
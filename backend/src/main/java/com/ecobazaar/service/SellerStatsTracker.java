@@ -0,0 +1,228 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.SellerStatsResponse;
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.repository.ProductRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-seller dashboard aggregates kept in memory. A seller's totals are loaded with
+ * one aggregate query the first time they are asked for, then kept current by deltas
+ * from ProductService writes. A scheduled job re-reads the totals of every tracked
+ * seller to repair any drift (e.g. a write that raced with the initial load).
+ *
+ * The load runs outside the map, so a slow query does not hold up other sellers.
+ * Ids that belong to no user are answered with zeros and never tracked. At most
+ * maxSellers are tracked; the least recently read tenth is dropped to make room,
+ * and sellers not read for idleMillis are dropped by the reconcile job.
+ */
+@Component
+public class SellerStatsTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(SellerStatsTracker.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${seller.stats.low-stock-threshold:5}")
+    private int lowStockThreshold;
+
+    @Value("${seller.stats.max-sellers:10000}")
+    private int maxSellers;
+
+    @Value("${seller.stats.idle-ms:3600000}")
+    private long idleMillis;
+
+    private final Map<Long, Totals> totalsBySeller = new ConcurrentHashMap<>();
+
+    // What one product adds to its seller's totals; amounts in hundredths
+    public record Contribution(boolean active, long stock, long rating, long carbon) {
+
+        public static Contribution of(Product product) {
+            return new Contribution(
+                    Boolean.TRUE.equals(product.getIsActive()),
+                    product.getStockQuantity() == null ? 0 : product.getStockQuantity(),
+                    ProductFacetIndex.toHundredths(product.getRating()),
+                    ProductFacetIndex.toHundredths(product.getCarbonFootprint()));
+        }
+    }
+
+    // Mutable totals; only touched while holding the Totals monitor
+    private static final class Totals {
+        volatile long lastReadAt = System.currentTimeMillis();
+        long active;
+        long inactive;
+        long stock;
+        long lowStock;
+        long ratingSum;
+        long carbonSum;
+    }
+
+    // Current stats for a seller, loading them from the database on first use
+    public SellerStatsResponse getStats(Long sellerId) {
+        Totals totals = totalsBySeller.get(sellerId);
+        if (totals == null) {
+            Totals loaded = load(sellerId);
+            totals = loaded == null ? new Totals() : track(sellerId, loaded);
+        }
+        totals.lastReadAt = System.currentTimeMillis();
+
+        SellerStatsResponse response = new SellerStatsResponse();
+        synchronized (totals) {
+            response.setSellerId(sellerId);
+            response.setActiveProducts(totals.active);
+            response.setInactiveProducts(totals.inactive);
+            response.setTotalStock(totals.stock);
+            response.setLowStockProducts(totals.lowStock);
+            response.setAverageRating(average(totals.ratingSum, totals.active));
+            response.setAverageCarbonFootprint(average(totals.carbonSum, totals.active));
+        }
+        return response;
+    }
+
+    // Apply the change of one product from before to after (either may be null); sellers not loaded are skipped
+    public void apply(Long sellerId, Contribution before, Contribution after) {
+        Totals totals = totalsBySeller.get(sellerId);
+        if (totals == null) {
+            return;
+        }
+        synchronized (totals) {
+            add(totals, before, -1);
+            add(totals, after, 1);
+        }
+    }
+
+    // Drop idle sellers, then re-read the totals of every tracked seller in one grouped query
+    @Scheduled(fixedDelayString = "${seller.stats.reconcile-interval-ms:600000}",
+               initialDelayString = "${seller.stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        totalsBySeller.values().removeIf(totals -> totals.lastReadAt < idleSince);
+        if (totalsBySeller.isEmpty()) {
+            return;
+        }
+
+        int corrected = 0;
+        for (Object[] row : productRepository.findAllSellerTotals(lowStockThreshold)) {
+            Long sellerId = (Long) row[0];
+            Totals tracked = totalsBySeller.get(sellerId);
+            if (tracked == null) {
+                continue;
+            }
+            Totals fresh = fromRow(row);
+            synchronized (tracked) {
+                if (differs(tracked, fresh)) {
+                    corrected++;
+                    copy(fresh, tracked);
+                }
+            }
+        }
+        log.info("Seller stats reconciled: {} sellers tracked, {} corrected", totalsBySeller.size(), corrected);
+    }
+
+    // Totals from the database, or null if no user has this id
+    private Totals load(Long sellerId) {
+        List<Object[]> rows = productRepository.findSellerTotals(sellerId, lowStockThreshold);
+        if (!rows.isEmpty()) {
+            return fromRow(rows.get(0));
+        }
+        return userRepository.existsById(sellerId) ? new Totals() : null;
+    }
+
+    // Start tracking loaded totals unless another reader got there first
+    private Totals track(Long sellerId, Totals loaded) {
+        if (totalsBySeller.size() >= maxSellers) {
+            evictLeastRecentlyRead();
+        }
+        Totals existing = totalsBySeller.putIfAbsent(sellerId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private synchronized void evictLeastRecentlyRead() {
+        int excess = totalsBySeller.size() - maxSellers * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<Long, Totals>> byAge = new ArrayList<>(totalsBySeller.entrySet());
+        byAge.sort((a, b) -> Long.compare(a.getValue().lastReadAt, b.getValue().lastReadAt));
+        for (int i = 0; i < excess && i < byAge.size(); i++) {
+            totalsBySeller.remove(byAge.get(i).getKey(), byAge.get(i).getValue());
+        }
+    }
+
+    private void add(Totals totals, Contribution c, int sign) {
+        if (c == null) {
+            return;
+        }
+        if (!c.active()) {
+            totals.inactive += sign;
+            return;
+        }
+        totals.active += sign;
+        totals.stock += sign * c.stock();
+        if (c.stock() <= lowStockThreshold) {
+            totals.lowStock += sign;
+        }
+        totals.ratingSum += sign * c.rating();
+        totals.carbonSum += sign * c.carbon();
+    }
+
+    private static Totals fromRow(Object[] row) {
+        Totals totals = new Totals();
+        totals.active = asLong(row[1]);
+        totals.inactive = asLong(row[2]);
+        totals.stock = asLong(row[3]);
+        totals.lowStock = asLong(row[4]);
+        totals.ratingSum = ProductFacetIndex.toHundredths(asDecimal(row[5]));
+        totals.carbonSum = ProductFacetIndex.toHundredths(asDecimal(row[6]));
+        return totals;
+    }
+
+    private static boolean differs(Totals a, Totals b) {
+        return a.active != b.active || a.inactive != b.inactive || a.stock != b.stock
+                || a.lowStock != b.lowStock || a.ratingSum != b.ratingSum || a.carbonSum != b.carbonSum;
+    }
+
+    private static void copy(Totals from, Totals to) {
+        to.active = from.active;
+        to.inactive = from.inactive;
+        to.stock = from.stock;
+        to.lowStock = from.lowStock;
+        to.ratingSum = from.ratingSum;
+        to.carbonSum = from.carbonSum;
+    }
+
+    private static long asLong(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static BigDecimal asDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private static BigDecimal average(long sumHundredths, long count) {
+        if (count == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return BigDecimal.valueOf(sumHundredths, 2).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
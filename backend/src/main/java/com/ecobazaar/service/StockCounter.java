@@ -0,0 +1,61 @@
+package com.ecobazaar.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free stock counter for one product. available is what can still be reserved:
+ * reservations take units with a compare-and-set loop that never lets it drop below
+ * zero, so concurrent reservations cannot oversell. unflushed counts committed units
+ * that have not been written back to products.stock_quantity yet.
+ */
+public final class StockCounter {
+
+    private final AtomicInteger available;
+    private final AtomicInteger unflushed = new AtomicInteger();
+
+    public StockCounter(int available) {
+        this.available = new AtomicInteger(available);
+    }
+
+    // Take quantity units if that many are available; false leaves the counter untouched
+    public boolean tryReserve(int quantity) {
+        while (true) {
+            int current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    // Give back the units of a reservation that will not be bought
+    public void release(int quantity) {
+        available.addAndGet(quantity);
+    }
+
+    // Reserved units were bought; they stay out of available and wait for write-back
+    public void commit(int quantity) {
+        unflushed.addAndGet(quantity);
+    }
+
+    // Apply a stock edit; available may go negative, and then nothing can be reserved until it recovers
+    public void adjust(int delta) {
+        available.addAndGet(delta);
+    }
+
+    public int available() {
+        return Math.max(available.get(), 0);
+    }
+
+    // Take every unflushed unit for one write-back
+    int drainUnflushed() {
+        return unflushed.getAndSet(0);
+    }
+
+    // Hand back units of a write-back that failed
+    void restoreUnflushed(int quantity) {
+        unflushed.addAndGet(quantity);
+    }
+}
@@ -0,0 +1,286 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import com.ecobazaar.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock reservations. Each product has a lock-free StockCounter loaded from
+ * products.stock_quantity on first use; reserving never blocks and never oversells
+ * within this node, so a flash sale on one product does not queue on its row.
+ *
+ * A reservation holds units until it is committed (bought), released, or its TTL runs
+ * out. Holds for placed orders (see hold) have no TTL: their units belong to the order
+ * until its stock stage sells them, however long fulfilment takes. Committed units are written back to the database in periodic batches as
+ * decrements. Seller stock edits are applied as deltas too (see adjust), so the counter
+ * and the column move by the same amounts whatever order the writes land in.
+ */
+@Component
+public class StockReservations {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservations.class);
+
+    private static final String WRITE_BACK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private ProductDetailCache detailCache;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private SellerStatsTracker sellerStats;
+
+    @Value("${stock.reservation.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Set<Long> unflushedProducts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextReservationId = new AtomicLong();
+
+    // Units of one product held for a buyer until expiresAt (epoch millis)
+    public record Reservation(long id, Long productId, int quantity, long expiresAt) {}
+
+    // Units that can still be reserved
+    public int available(Long productId) {
+        return counter(productId).available();
+    }
+
+    // Reserve units with the default TTL
+    public Reservation reserve(Long productId, int quantity) {
+        return reserve(productId, quantity, Duration.ofSeconds(ttlSeconds));
+    }
+
+    // Reserve units for ttl; fails without waiting when fewer are available
+    public Reservation reserve(Long productId, int quantity, Duration ttl) {
+        return reserve(productId, quantity, System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    // Reserve units for a placed order until they are sold or released; they never expire
+    public Reservation hold(Long productId, int quantity) {
+        return reserve(productId, quantity, Long.MAX_VALUE);
+    }
+
+    private Reservation reserve(Long productId, int quantity, long expiresAt) {
+        if (quantity < 1) {
+            throw new RuntimeException("Quantity must be at least 1");
+        }
+        if (!counter(productId).tryReserve(quantity)) {
+            throw new RuntimeException("Insufficient stock for product id: " + productId);
+        }
+
+        Reservation reservation = new Reservation(nextReservationId.incrementAndGet(), productId, quantity, expiresAt);
+        reservations.put(reservation.id(), reservation);
+        return reservation;
+    }
+
+    // Give the units back; false if the reservation was already committed, released or expired
+    public boolean release(long reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        counter(reservation.productId()).release(reservation.quantity());
+        return true;
+    }
+
+    // Turn the reservation into a sale; false if it is gone or has expired, in which case nothing was sold
+    public boolean commit(long reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        StockCounter counter = counter(reservation.productId());
+        if (reservation.expiresAt() < System.currentTimeMillis()) {
+            counter.release(reservation.quantity());
+            return false;
+        }
+        counter.commit(reservation.quantity());
+        unflushedProducts.add(reservation.productId());
+        return true;
+    }
+
+    /**
+     * Take the units of a reservation as sold, for a caller that has written the sale
+     * itself (see applySales) and calls this once it has committed. A hold is always still
+     * there; a timed reservation that expired has released its units, so they are taken again.
+     */
+    public void sell(Reservation reservation) {
+        if (reservations.remove(reservation.id()) == null) {
+            sell(reservation.productId(), reservation.quantity());
+        }
+    }
+
+    // Take units sold without a live reservation, e.g. one made before a restart
+    public void sell(Long productId, int quantity) {
+        counter(productId).adjust(-quantity);
+    }
+
+    // Write sold units to products.stock_quantity in one batch, inside the caller's transaction;
+    // the read structures follow once it commits
+    public void applySales(Map<Long, Integer> sold) {
+        // updated_at moves with the stock so the product detail ETag changes with it
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(sold.size());
+        sold.forEach((productId, quantity) -> args.add(new Object[] { quantity, now, productId }));
+        jdbcTemplate.batchUpdate(WRITE_BACK_SQL, args);
+        List<Product> products = productRepository.findAllById(sold.keySet());
+        afterCommit(() -> refreshReadStructures(products, sold));
+    }
+
+    // Start tracking a product created with the given stock, saving the load on first use
+    public void register(Long productId, Integer stockQuantity) {
+        counters.putIfAbsent(productId, new StockCounter(stockQuantity == null ? 0 : stockQuantity));
+    }
+
+    /**
+     * Apply a seller's stock edit of delta units. Must be called inside the editing
+     * transaction before the column is updated: the counter is loaded first, so the
+     * delta is counted exactly once. A decrease takes effect at once (and is undone
+     * on rollback) so the counter never offers units the database no longer has; an
+     * increase only once it has committed.
+     */
+    public void adjust(Long productId, int delta) {
+        StockCounter counter = counter(productId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.adjust(delta);
+            return;
+        }
+
+        if (delta < 0) {
+            counter.adjust(delta);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (delta > 0 && status == STATUS_COMMITTED) {
+                    counter.adjust(delta);
+                } else if (delta < 0 && status != STATUS_COMMITTED) {
+                    counter.adjust(-delta);
+                }
+            }
+        });
+    }
+
+    // Return the units of reservations whose TTL has run out
+    @Scheduled(fixedDelayString = "${stock.reservation.expiry-interval-ms:1000}")
+    public void expireReservations() {
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.expiresAt() < now && reservations.remove(reservation.id(), reservation)) {
+                counter(reservation.productId()).release(reservation.quantity());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.info("Stock reservations expired: {}, {} outstanding", expired, reservations.size());
+        }
+    }
+
+    // Write committed units back to products.stock_quantity in one batch
+    @Scheduled(fixedDelayString = "${stock.write-back-interval-ms:500}")
+    public void writeBack() {
+        if (unflushedProducts.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> sold = new HashMap<>();
+        for (Long productId : new ArrayList<>(unflushedProducts)) {
+            unflushedProducts.remove(productId);
+            int quantity = counters.get(productId).drainUnflushed();
+            if (quantity > 0) {
+                sold.put(productId, quantity);
+            }
+        }
+        if (sold.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> applySales(sold));
+        } catch (RuntimeException e) {
+            sold.forEach((productId, quantity) -> {
+                counters.get(productId).restoreUnflushed(quantity);
+                unflushedProducts.add(productId);
+            });
+            log.error("Stock write-back of {} products failed; will retry", sold.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void writeBackOnShutdown() {
+        writeBack();
+    }
+
+    // Stock feeds the in-stock facet, seller totals and the cached product details
+    private void refreshReadStructures(List<Product> products, Map<Long, Integer> sold) {
+        for (Product product : products) {
+            SellerStatsTracker.Contribution after = SellerStatsTracker.Contribution.of(product);
+            SellerStatsTracker.Contribution before = new SellerStatsTracker.Contribution(
+                    after.active(), after.stock() + sold.get(product.getId()), after.rating(), after.carbon());
+            facetIndex.index(product);
+            sellerStats.apply(product.getSeller().getId(), before, after);
+            detailCache.invalidate(product.getId());
+        }
+        catalogVersion.invalidate();
+    }
+
+    // Run once the surrounding transaction has committed, so readers never see uncommitted stock
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private StockCounter counter(Long productId) {
+        return counters.computeIfAbsent(productId, id -> new StockCounter(productRepository.findStockQuantityById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id))));
+    }
+}
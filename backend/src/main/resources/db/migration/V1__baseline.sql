@@ -0,0 +1,82 @@
+-- The ecobazaar schema as Hibernate created it before the migration scripts.
+-- Existing databases already have these tables and are baselined at this version.
+
+CREATE TABLE users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    full_name VARCHAR(100) NOT NULL,
+    email VARCHAR(150) NOT NULL,
+    phone VARCHAR(20),
+    address TEXT,
+    password_hash VARCHAR(255) NOT NULL,
+    enabled BIT NOT NULL,
+    eco_commitment BIT,
+    notification_orders BIT,
+    notification_promotions BIT,
+    notification_sustainability BIT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE=InnoDB;
+
+CREATE TABLE roles (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name ENUM('ADMIN','CUSTOMER','SELLER') NOT NULL,
+    description VARCHAR(255),
+    created_at DATETIME(6),
+    CONSTRAINT uk_roles_name UNIQUE (name)
+) ENGINE=InnoDB;
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    PRIMARY KEY (role_id, user_id),
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (role_id) REFERENCES roles(id)
+) ENGINE=InnoDB;
+
+CREATE TABLE categories (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description VARCHAR(255),
+    created_at DATETIME(6),
+    CONSTRAINT uk_categories_name UNIQUE (name)
+) ENGINE=InnoDB;
+
+CREATE TABLE products (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(200) NOT NULL,
+    description TEXT,
+    price DECIMAL(10,2) NOT NULL,
+    image_url VARCHAR(500),
+    category_id BIGINT,
+    seller_id BIGINT NOT NULL,
+    stock_quantity INT,
+    carbon_footprint DECIMAL(5,2),
+    rating DECIMAL(3,2),
+    reviews_count INT,
+    is_active BIT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    FOREIGN KEY (category_id) REFERENCES categories(id),
+    FOREIGN KEY (seller_id) REFERENCES users(id)
+) ENGINE=InnoDB;
+
+CREATE TABLE cart (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    CONSTRAINT uk_cart_user UNIQUE (user_id),
+    FOREIGN KEY (user_id) REFERENCES users(id)
+) ENGINE=InnoDB;
+
+CREATE TABLE cart_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    cart_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    FOREIGN KEY (cart_id) REFERENCES cart(id),
+    FOREIGN KEY (product_id) REFERENCES products(id)
+) ENGINE=InnoDB;
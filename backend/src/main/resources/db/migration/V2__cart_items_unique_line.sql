@@ -0,0 +1,12 @@
+-- Cart lines: one row per (cart, product), so adds can upsert.
+-- Merge any duplicate lines before adding the key.
+UPDATE cart_items ci JOIN (
+    SELECT MIN(id) keep_id, SUM(quantity) qty FROM cart_items
+    GROUP BY cart_id, product_id HAVING COUNT(*) > 1) d ON ci.id = d.keep_id
+SET ci.quantity = d.qty;
+DELETE ci FROM cart_items ci JOIN (
+    SELECT cart_id, product_id, MIN(id) keep_id FROM cart_items
+    GROUP BY cart_id, product_id HAVING COUNT(*) > 1) d
+  ON ci.cart_id = d.cart_id AND ci.product_id = d.product_id AND ci.id <> d.keep_id;
+ALTER TABLE cart_items
+    ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
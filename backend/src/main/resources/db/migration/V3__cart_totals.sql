@@ -0,0 +1,14 @@
+-- Running cart totals in minor units: cents and grams CO2e.
+ALTER TABLE cart
+    ADD COLUMN subtotal_cents BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN carbon_grams BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN total_items INT NOT NULL DEFAULT 0;
+UPDATE cart c SET
+    subtotal_cents = (SELECT COALESCE(SUM(ci.quantity * ROUND(p.price * 100)), 0)
+                      FROM cart_items ci JOIN products p ON p.id = ci.product_id
+                      WHERE ci.cart_id = c.id),
+    carbon_grams = (SELECT COALESCE(SUM(ci.quantity * ROUND(p.carbon_footprint * 1000)), 0)
+                    FROM cart_items ci JOIN products p ON p.id = ci.product_id
+                    WHERE ci.cart_id = c.id),
+    total_items = (SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_items ci
+                   WHERE ci.cart_id = c.id);
@@ -0,0 +1,2 @@
+-- Cart version for delta responses.
+ALTER TABLE cart ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,38 @@
+-- Checkout and staged order fulfilment.
+CREATE TABLE orders (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    subtotal_cents BIGINT NOT NULL,
+    carbon_grams BIGINT NOT NULL,
+    total_items INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_orders_user (user_id),
+    FOREIGN KEY (user_id) REFERENCES users(id));
+CREATE TABLE order_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(200) NOT NULL,
+    seller_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    unit_cents BIGINT NOT NULL,
+    unit_grams BIGINT NOT NULL,
+    INDEX idx_order_items_order (order_id),
+    FOREIGN KEY (order_id) REFERENCES orders(id));
+CREATE TABLE fulfilment_tasks (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL UNIQUE,
+    stage ENUM('STOCK','CARBON','NOTIFY_BUYER','NOTIFY_SELLERS','DONE','FAILED') NOT NULL,
+    attempts INT NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    last_error VARCHAR(500),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    INDEX idx_fulfilment_stage_due (stage, next_attempt_at));
+CREATE TABLE notifications (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    message VARCHAR(500) NOT NULL,
+    created_at DATETIME(6),
+    INDEX idx_notifications_user (user_id));
+ALTER TABLE users ADD COLUMN purchased_carbon_grams BIGINT NOT NULL DEFAULT 0;
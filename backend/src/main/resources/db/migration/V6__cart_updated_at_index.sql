@@ -0,0 +1,2 @@
+-- Abandoned cart sweeper walks carts by last update.
+CREATE INDEX idx_cart_updated_at ON cart (updated_at);
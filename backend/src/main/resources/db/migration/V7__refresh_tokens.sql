@@ -0,0 +1,17 @@
+-- Rotating refresh tokens and revocation.
+CREATE TABLE refresh_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    family_id VARCHAR(36) NOT NULL,
+    role ENUM('ADMIN','CUSTOMER','SELLER') NOT NULL,
+    access_token_id BIGINT NOT NULL,
+    access_expires_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    rotated_at DATETIME(6),
+    revoked_at DATETIME(6),
+    created_at DATETIME(6),
+    INDEX idx_refresh_tokens_family (family_id),
+    INDEX idx_refresh_tokens_user (user_id),
+    INDEX idx_refresh_tokens_revoked (revoked_at),
+    FOREIGN KEY (user_id) REFERENCES users(id));
@@ -0,0 +1,2 @@
+-- The catalog version reads COUNT(*) and MAX(updated_at) from products on every poll.
+CREATE INDEX idx_products_updated_at ON products (updated_at);
@@ -0,0 +1,50 @@
+package com.ecobazaar;
+
+import com.ecobazaar.dto.CartItemRequest;
+import com.ecobazaar.dto.ProductRequest;
+import com.ecobazaar.entity.User;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Users, products and cart lines for the Spring Boot tests. All test classes with the
+ * same properties share one H2 database, so names carry a random suffix to keep each
+ * test's rows apart.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    // Eight random characters to make emails and product names unique across tests
+    public static String suffix() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // An unsaved user with email <name>@example.com
+    public static User user(String name) {
+        User user = new User();
+        user.setFullName(name);
+        user.setEmail(name + "@example.com");
+        user.setPasswordHash("hash");
+        return user;
+    }
+
+    public static ProductRequest product(String name, String price, int stock, String carbonFootprint) {
+        ProductRequest request = new ProductRequest();
+        request.setName(name);
+        request.setDescription("Plastic-free");
+        request.setPrice(new BigDecimal(price));
+        request.setStockQuantity(stock);
+        request.setCarbonFootprint(new BigDecimal(carbonFootprint));
+        return request;
+    }
+
+    public static CartItemRequest item(Long productId, int quantity) {
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecobazaar.benchmark;
+
+import com.ecobazaar.dto.CartItemResponse;
+import com.ecobazaar.dto.CartResponse;
+import com.ecobazaar.service.MinorUnits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of filling in the money and carbon fields of one CartResponse: the old path
+ * multiplies BigDecimals per line and streams over the lines for the three totals;
+ * the new path multiplies longs per line and takes the totals from the persisted
+ * running sums, creating BigDecimals only for the fields that are serialized.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.ecobazaar.benchmark.CartTotalsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({ "5", "20", "50" })
+    private int lines;
+
+    // Old path inputs: product amounts as loaded from the entities
+    private BigDecimal[] prices;
+    private BigDecimal[] footprints;
+    private int[] quantities;
+
+    // New path inputs: the same amounts in minor units plus the cart's running totals
+    private long[] unitCents;
+    private long[] unitGrams;
+    private long subtotalCents;
+    private long carbonGrams;
+    private int totalItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[lines];
+        footprints = new BigDecimal[lines];
+        quantities = new int[lines];
+        unitCents = new long[lines];
+        unitGrams = new long[lines];
+
+        for (int i = 0; i < lines; i++) {
+            prices[i] = BigDecimal.valueOf(100 + random.nextInt(20000), 2);
+            footprints[i] = BigDecimal.valueOf(random.nextInt(2000), 2);
+            quantities[i] = 1 + random.nextInt(5);
+
+            unitCents[i] = MinorUnits.cents(prices[i]);
+            unitGrams[i] = MinorUnits.grams(footprints[i]);
+            subtotalCents += unitCents[i] * quantities[i];
+            carbonGrams += unitGrams[i] * quantities[i];
+            totalItems += quantities[i];
+        }
+    }
+
+    @Benchmark
+    public CartResponse recomputeWithBigDecimal() {
+        List<CartItemResponse> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            CartItemResponse item = new CartItemResponse();
+            item.setQuantity(quantities[i]);
+            item.setLineTotal(prices[i].multiply(new BigDecimal(quantities[i])));
+            item.setLineCarbonFootprint(footprints[i].multiply(new BigDecimal(quantities[i])));
+            items.add(item);
+        }
+
+        CartResponse response = new CartResponse();
+        response.setItems(items);
+        response.setSubtotal(items.stream()
+                .map(CartItemResponse::getLineTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        response.setTotalCarbonFootprint(items.stream()
+                .map(CartItemResponse::getLineCarbonFootprint)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        response.setTotalItems(items.stream()
+                .mapToInt(CartItemResponse::getQuantity)
+                .sum());
+        return response;
+    }
+
+    @Benchmark
+    public CartResponse runningTotalsInMinorUnits() {
+        List<CartItemResponse> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            CartItemResponse item = new CartItemResponse();
+            item.setQuantity(quantities[i]);
+            item.setLineTotal(MinorUnits.fromCents(unitCents[i] * quantities[i]));
+            item.setLineCarbonFootprint(MinorUnits.fromGrams(unitGrams[i] * quantities[i]));
+            items.add(item);
+        }
+
+        CartResponse response = new CartResponse();
+        response.setItems(items);
+        response.setSubtotal(MinorUnits.fromCents(subtotalCents));
+        response.setTotalCarbonFootprint(MinorUnits.fromGrams(carbonGrams));
+        response.setTotalItems(totalItems);
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ecobazaar.benchmark;
+
+import com.ecobazaar.security.JwtPrincipal;
+import com.ecobazaar.security.JwtUtils;
+import com.ecobazaar.security.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating one bearer token. The old path rebuilds the key
+ * and parser and verifies the token three times (validate, email, role); the new path
+ * verifies it once with the prebuilt parser on a cache miss, and on a hit only
+ * digests the token and looks it up.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.ecobazaar.benchmark.JwtAuthBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthBenchmark {
+    
+    private static final String SECRET = "ecobazaarSecretKeyForJWTTokenGeneration2024";
+    
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache tokenCache;
+    private String token;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        Method init = JwtUtils.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(jwtUtils);
+        
+        tokenCache = new VerifiedTokenCache(100_000);
+        token = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 1L);
+        tokenCache.get(token, jwtUtils::parsePrincipal);
+    }
+    
+    @Benchmark
+    public void rebuiltKeyParsedThreeTimes(Blackhole blackhole) {
+        // validateJwtToken, getEmailFromJwtToken and getRoleFromJwtToken as they were
+        Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token);
+        blackhole.consume(Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject());
+        blackhole.consume(Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .get("role", String.class));
+    }
+    
+    @Benchmark
+    public JwtPrincipal prebuiltParserParsedOnce() {
+        return jwtUtils.parsePrincipal(token);
+    }
+    
+    @Benchmark
+    public JwtPrincipal verifiedTokenCacheHit() {
+        return tokenCache.get(token, jwtUtils::parsePrincipal);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
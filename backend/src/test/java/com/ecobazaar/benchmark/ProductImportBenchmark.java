@@ -0,0 +1,115 @@
+package com.ecobazaar.benchmark;
+
+import com.ecobazaar.EcoBazaarBackendApplication;
+import com.ecobazaar.dto.ProductRequest;
+import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.UserRepository;
+import com.ecobazaar.service.ProductImportService;
+import com.ecobazaar.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second for the bulk CSV import versus one createProduct call per row.
+ * Runs against the test H2 database (src/test/resources/application.properties);
+ * point spring.datasource.* at MySQL to measure the real batching win.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.ecobazaar.benchmark.ProductImportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ProductImportBenchmark {
+    
+    private static final int ROWS = 1000;
+    
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductImportService importService;
+    private Long sellerId;
+    private byte[] csv;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(EcoBazaarBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=WARN");
+        productService = context.getBean(ProductService.class);
+        importService = context.getBean(ProductImportService.class);
+        
+        User seller = new User();
+        seller.setFullName("Benchmark Seller");
+        seller.setEmail("benchmark-seller@example.com");
+        seller.setPasswordHash("hash");
+        sellerId = context.getBean(UserRepository.class).save(seller).getId();
+        
+        StringBuilder builder = new StringBuilder("name,description,price,stockQuantity,carbonFootprint\n");
+        for (int i = 0; i < ROWS; i++) {
+            builder.append("Bamboo cutlery set ").append(i)
+                    .append(",\"Reusable, travel case\",12.50,40,0.80\n");
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int singleInserts() {
+        int created = 0;
+        for (int i = 0; i < ROWS; i++) {
+            ProductRequest request = new ProductRequest();
+            request.setName("Bamboo cutlery set " + i);
+            request.setDescription("Reusable, travel case");
+            request.setPrice(new BigDecimal("12.50"));
+            request.setStockQuantity(40);
+            request.setCarbonFootprint(new BigDecimal("0.80"));
+            productService.createProduct(request, sellerId);
+            created++;
+        }
+        return created;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int bulkImport() throws IOException {
+        return importService.importProducts(sellerId, ProductImportService.Format.CSV,
+                new ByteArrayInputStream(csv)).getImported();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductImportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
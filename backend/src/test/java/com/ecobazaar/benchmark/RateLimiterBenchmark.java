@@ -0,0 +1,87 @@
+package com.ecobazaar.benchmark;
+
+import com.ecobazaar.security.TokenBuckets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one rate limit check with four threads calling at once: every thread on
+ * the same key (all compare-and-sets on one bucket), threads spread over 10,000 IPs,
+ * and a key whose bucket is empty (the rejection path, no write to the bucket).
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.ecobazaar.benchmark.RateLimiterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RateLimiterBenchmark {
+    
+    private static final int KEYS = 10_000;
+    
+    private TokenBuckets unlimited;
+    private TokenBuckets exhausted;
+    private String[] ips;
+    
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = ThreadLocalRandom.current().nextInt(KEYS);
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Large enough that the allowed paths never run dry during a run
+        unlimited = new TokenBuckets("unlimited", 1_000_000_000, 1, TimeUnit.SECONDS, 100_000);
+        exhausted = new TokenBuckets("exhausted", 1, 1, TimeUnit.HOURS, 100_000);
+        exhausted.acquire("10.0.0.1");
+        
+        ips = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ips[i] = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+            unlimited.acquire(ips[i]);
+        }
+    }
+    
+    @Benchmark
+    public long sameKeyAllowed() {
+        return unlimited.acquire("10.0.0.1");
+    }
+    
+    @Benchmark
+    public long spreadKeysAllowed(Cursor cursor) {
+        int i = cursor.next;
+        cursor.next = i + 1 == KEYS ? 0 : i + 1;
+        return unlimited.acquire(ips[i]);
+    }
+    
+    @Benchmark
+    public long sameKeyRejected() {
+        return exhausted.acquire("10.0.0.1");
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecobazaar.benchmark;
+
+import com.ecobazaar.service.StockCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations per second on one hot product with 16 threads: each operation reserves
+ * one unit and releases it again, so the counter never runs dry. The lock-free counter
+ * is compared with the same counter guarded by a monitor, which is how a per-product
+ * lock (or, worse, the product row lock) would serialize a flash sale.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.ecobazaar.benchmark.StockReservationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class StockReservationBenchmark {
+
+    private StockCounter counter;
+    private LockedCounter lockedCounter;
+
+    // Baseline: the same check-and-take under one lock
+    private static final class LockedCounter {
+        private int available;
+
+        LockedCounter(int available) {
+            this.available = available;
+        }
+
+        synchronized boolean tryReserve(int quantity) {
+            if (available < quantity) {
+                return false;
+            }
+            available -= quantity;
+            return true;
+        }
+
+        synchronized void release(int quantity) {
+            available += quantity;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        counter = new StockCounter(1_000);
+        lockedCounter = new LockedCounter(1_000);
+    }
+
+    @Benchmark
+    public boolean lockFreeCounter() {
+        boolean reserved = counter.tryReserve(1);
+        if (reserved) {
+            counter.release(1);
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean lockedCounter() {
+        boolean reserved = lockedCounter.tryReserve(1);
+        if (reserved) {
+            lockedCounter.release(1);
+        }
+        return reserved;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StockReservationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
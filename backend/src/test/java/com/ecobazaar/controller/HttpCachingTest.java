@@ -0,0 +1,33 @@
+package com.ecobazaar.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * List ETags tell different queries apart even when their parameters share a 32-bit
+ * hash, or would read the same once joined.
+ */
+class HttpCachingTest {
+    
+    @Test
+    void parametersWithTheSameHashCodeGetDifferentTags() {
+        // "Aa" and "BB" have the same String.hashCode()
+        assertThat(HttpCaching.etag("v1", 0, 12, "Aa")).isNotEqualTo(HttpCaching.etag("v1", 0, 12, "BB"));
+    }
+    
+    @Test
+    void parameterBoundariesAndNullsAreKept() {
+        assertThat(HttpCaching.etag("v1", "a;b", null)).isNotEqualTo(HttpCaching.etag("v1", "a", "b"));
+        assertThat(HttpCaching.etag("v1", "x", null)).isNotEqualTo(HttpCaching.etag("v1", null, "x"));
+        assertThat(HttpCaching.etag("v1", "x", null)).isEqualTo(HttpCaching.etag("v1", "x", null));
+    }
+    
+    @Test
+    void aTagMatchesItselfInIfNoneMatch() {
+        String etag = HttpCaching.etag("v1", "seller", 7L);
+        
+        assertThat(HttpCaching.matches("W/" + etag + ", \"other\"", etag)).isTrue();
+        assertThat(HttpCaching.matches(HttpCaching.etag("v2", "seller", 7L), etag)).isFalse();
+    }
+}
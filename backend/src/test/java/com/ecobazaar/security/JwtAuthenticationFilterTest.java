@@ -0,0 +1,140 @@
+package com.ecobazaar.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The filter turns a valid bearer token into an authenticated principal, verifying it
+ * once and serving repeats from the cache; bad, expired or revoked tokens leave the
+ * request anonymous.
+ */
+class JwtAuthenticationFilterTest {
+    
+    private static final String SECRET = "ecobazaarSecretKeyForJWTTokenGeneration2024";
+    
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache tokenCache;
+    private RevokedTokens revokedTokens;
+    private JwtAuthenticationFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        jwtUtils.init();
+        tokenCache = new VerifiedTokenCache(100);
+        revokedTokens = new RevokedTokens();
+        filter = new JwtAuthenticationFilter(jwtUtils, tokenCache, revokedTokens);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    void validTokenIsVerifiedOnceThenServedFromCache() throws Exception {
+        String token = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 7L);
+        
+        Authentication first = filter(token);
+        Authentication second = filter(token);
+        
+        assertThat(first.getPrincipal()).isInstanceOf(JwtPrincipal.class);
+        assertThat(((JwtPrincipal) first.getPrincipal()).email()).isEqualTo("buyer@example.com");
+        assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CUSTOMER");
+        assertThat(second.getPrincipal()).isSameAs(first.getPrincipal());
+        assertThat(tokenCache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+    
+    @Test
+    void tamperedOrForeignTokensStayAnonymous() throws Exception {
+        String token = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 7L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        String foreign = Jwts.builder()
+                .setId("1")
+                .setSubject("admin@example.com")
+                .claim("role", "ADMIN")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("someOtherSecretThatIsLongEnoughForHs256!!".getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS256)
+                .compact();
+        
+        assertThat(filter(tampered)).isNull();
+        assertThat(filter(foreign)).isNull();
+        assertThat(filter("not-a-jwt")).isNull();
+        assertThat(tokenCache.getStats()).containsEntry("size", 0);
+    }
+    
+    @Test
+    void tokensWithoutAnIdAreRejected() throws Exception {
+        // Issued before tokens carried a jti, so they could never be revoked
+        String legacy = Jwts.builder()
+                .setSubject("buyer@example.com")
+                .claim("role", "CUSTOMER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+        
+        assertThat(filter(legacy)).isNull();
+    }
+    
+    @Test
+    void revokedTokenStaysAnonymousEvenWhenCached() throws Exception {
+        String token = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 7L);
+        String other = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 8L);
+        assertThat(filter(token)).isNotNull();
+        
+        revokedTokens.revoke(7L, System.currentTimeMillis() + 60_000);
+        
+        assertThat(filter(token)).isNull();
+        assertThat(filter(other)).isNotNull();
+        assertThat(revokedTokens.isRevoked(8L)).isFalse();
+    }
+    
+    @Test
+    void revocationsAreDroppedOnceTheTokenHasExpired() {
+        revokedTokens.revoke(1L, System.currentTimeMillis() - 1);
+        revokedTokens.revoke(2L, System.currentTimeMillis() + 60_000);
+        
+        assertThat(revokedTokens.isRevoked(1L)).isFalse();
+        assertThat(revokedTokens.isRevoked(2L)).isTrue();
+        assertThat(revokedTokens.size()).isEqualTo(1);
+    }
+    
+    @Test
+    void cachedTokenIsNotServedPastItsExpiry() {
+        String token = jwtUtils.generateJwtToken("buyer@example.com", "CUSTOMER", 7L);
+        tokenCache.get(token, ignored -> new JwtPrincipal("buyer@example.com", "CUSTOMER", 7L, System.currentTimeMillis() - 1));
+        
+        // The expired entry is dropped and the token verified again
+        JwtPrincipal principal = tokenCache.get(token, jwtUtils::parsePrincipal);
+        
+        assertThat(principal.isExpired(System.currentTimeMillis())).isFalse();
+        assertThat(tokenCache.getStats()).containsEntry("hits", 0L).containsEntry("misses", 2L);
+    }
+    
+    private Authentication filter(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart/user/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecobazaar.security;
+
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.RoleRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test: catalog reads keep their latency while 48 clients hammer the login
+ * endpoint. The hashing pool is one thread with a queue of four, so most logins are
+ * turned away with 503 + Retry-After instead of piling up on request threads.
+ *
+ * Not part of the default build: run it with mvn test -DloadTests=true -Dtest=LoginFloodLoadTest
+ */
+// Own database: a context with different properties must not recreate the shared schema.
+// Rate limits are off: the flood comes from one IP and would otherwise never reach the pool.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "auth.hashing.threads=1", "auth.hashing.queue-size=4", "rate-limit.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:loginflood;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@Tag("load")
+@EnabledIfSystemProperty(named = "loadTests", matches = "true")
+class LoginFloodLoadTest {
+    
+    private static final int FLOOD_CLIENTS = 48;
+    private static final int CATALOG_REQUESTS = 100;
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    
+    @Test
+    void catalogLatencyStaysFlatDuringLoginFlood() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = new User();
+            user.setFullName("Flood Target");
+            user.setEmail("flood@example.com");
+            user.setPasswordHash(passwordEncoder.encode("secret123"));
+            user.setEnabled(true);
+            user.addRole(roleRepository.save(new Role(Role.RoleName.CUSTOMER, "Customer")));
+            userRepository.save(user);
+        });
+        
+        // Warm up both paths, then measure the catalog on its own
+        catalogLatencies(20);
+        assertThat(login().statusCode()).isEqualTo(200);
+        List<Long> baseline = catalogLatencies(CATALOG_REQUESTS);
+        
+        AtomicBoolean flooding = new AtomicBoolean(true);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger rejectedWithoutRetryAfter = new AtomicInteger();
+        AtomicInteger other = new AtomicInteger();
+        ExecutorService flood = Executors.newFixedThreadPool(FLOOD_CLIENTS);
+        for (int i = 0; i < FLOOD_CLIENTS; i++) {
+            flood.submit(() -> {
+                while (flooding.get()) {
+                    try {
+                        HttpResponse<String> response = login();
+                        if (response.statusCode() == 200) {
+                            accepted.incrementAndGet();
+                        } else if (response.statusCode() == 503) {
+                            rejected.incrementAndGet();
+                            String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+                            if (retryAfter == null) {
+                                rejectedWithoutRetryAfter.incrementAndGet();
+                            } else {
+                                Thread.sleep(Long.parseLong(retryAfter) * 1000);
+                            }
+                        } else {
+                            other.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        other.incrementAndGet();
+                    }
+                }
+            });
+        }
+        
+        List<Long> underFlood;
+        try {
+            Thread.sleep(500);
+            underFlood = catalogLatencies(CATALOG_REQUESTS);
+        } finally {
+            flooding.set(false);
+            flood.shutdown();
+            flood.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        
+        assertThat(accepted.get()).isPositive();
+        assertThat(rejected.get()).isPositive();
+        assertThat(rejectedWithoutRetryAfter.get()).isZero();
+        assertThat(other.get()).isZero();
+        // Generous bound for a shared CI machine; without admission control every request thread hashes
+        assertThat(percentile(underFlood, 95)).isLessThan(Math.max(10 * percentile(baseline, 95), 250.0));
+    }
+    
+    private List<Long> catalogLatencies(int count) throws Exception {
+        List<Long> latencies = new ArrayList<>(count);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products?page=0&size=12"))
+                .GET().build();
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.add(System.nanoTime() - start);
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+        return latencies;
+    }
+    
+    private HttpResponse<String> login() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"flood@example.com\",\"password\":\"secret123\",\"role\":\"CUSTOMER\"}"))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    // Percentile in milliseconds
+    private static double percentile(List<Long> nanos, int percentile) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecobazaar.security;
+
+import com.ecobazaar.dto.AuthResponse;
+import com.ecobazaar.dto.RegisterRequest;
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.repository.RoleRepository;
+import com.ecobazaar.service.AuthService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.ecobazaar.TestFixtures.suffix;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A user's orders and notifications, and a seller's product writes, import, export
+ * and stats, need a token, and only that user's token (or an admin's) gets them;
+ * without a token the answer is 401 so the client can refresh. Operational stats are
+ * for admins. Registering another role on someone's email needs their password.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OwnerAuthorizationTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private AuthResponse alice;
+    private AuthResponse bob;
+    
+    @BeforeEach
+    void setUp() {
+        for (Role.RoleName name : Role.RoleName.values()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (roleRepository.findByName(name).isEmpty()) {
+                    roleRepository.save(new Role(name, name.toString()));
+                }
+            });
+        }
+        alice = authService.register(registration("alice"));
+        bob = authService.register(registration("bob"));
+    }
+    
+    @Test
+    void ordersAndNotificationsAreOnlyServedToTheirOwner() throws Exception {
+        String orders = "/orders/user/" + alice.getId();
+        String notifications = "/notifications/user/" + alice.getId();
+        
+        mockMvc.perform(get(orders)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(orders).header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(orders).header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+        
+        mockMvc.perform(get(notifications).header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(notifications).header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+    }
+    
+    @Test
+    void sellerToolsAndOperationalStatsNeedTheRightCaller() throws Exception {
+        String stats = "/products/seller/" + alice.getId() + "/stats";
+        
+        mockMvc.perform(get(stats)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(stats).header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/products/seller/" + alice.getId() + "/export")
+                        .header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+        
+        mockMvc.perform(get("/products/cache/stats").header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/auth/rate-limit/stats").header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isForbidden());
+    }
+    
+    @Test
+    void onlyTheSellerCanCreateEditOrDeleteTheirProducts() throws Exception {
+        String body = "{\"name\":\"Jute bag " + suffix() + "\",\"price\":6.00,\"stockQuantity\":5}";
+        String create = "/products/seller/" + alice.getId();
+        
+        mockMvc.perform(post(create).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post(create).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+        String created = mockMvc.perform(post(create).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String product = "/products/" + JsonPath.read(created, "$.id") + "/seller/" + alice.getId();
+        
+        mockMvc.perform(put(product).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(put(product).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete(product)).andExpect(status().isUnauthorized());
+        mockMvc.perform(delete(product).header("Authorization", "Bearer " + bob.getToken()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete(product).header("Authorization", "Bearer " + alice.getToken()))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    void registeringARoleOnSomeoneElsesEmailGetsNoToken() throws Exception {
+        String takeover = "{\"fullName\":\"mallory\",\"email\":\"" + alice.getEmail()
+                + "\",\"password\":\"guessed1\",\"role\":\"SELLER\"}";
+        
+        mockMvc.perform(post("/auth/register").contentType(MediaType.APPLICATION_JSON).content(takeover))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid email or password!"))
+                .andExpect(jsonPath("$.token").doesNotExist());
+    }
+    
+    private static RegisterRequest registration(String name) {
+        RegisterRequest request = new RegisterRequest();
+        request.setFullName(name);
+        request.setEmail(name + "-" + suffix() + "@example.com");
+        request.setPassword("secret123");
+        request.setRole("CUSTOMER");
+        return request;
+    }
+}
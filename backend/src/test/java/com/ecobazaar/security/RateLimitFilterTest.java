@@ -0,0 +1,103 @@
+package com.ecobazaar.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The filter limits login, registration and cart writes and answers 429 with
+ * Retry-After once a client's bucket is empty; reads are never limited.
+ */
+class RateLimitFilterTest {
+    
+    private RateLimits rateLimits;
+    private RateLimitFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        rateLimits = new RateLimits(true, 1000, "3/1m", "2/1m", "1/1h", "5/1m", "2/1m");
+        filter = new RateLimitFilter(rateLimits);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    void loginIsLimitedPerIp() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(filter("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        
+        MockHttpServletResponse rejected = filter("POST", "/api/auth/login", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(rejected.getContentAsString()).contains("\"error\"");
+        
+        assertThat(filter("POST", "/api/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(filter("GET", "/api/products", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+    
+    @Test
+    void cartWritesAreLimitedPerAccountAcrossIps() throws Exception {
+        assertThat(filter("POST", "/api/cart/user/7/items", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(filter("DELETE", "/api/cart/user/7/items/3", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(filter("PUT", "/api/cart/user/7/items/3", "10.0.0.3").getStatus()).isEqualTo(429);
+        
+        // Reads and other users are not affected
+        assertThat(filter("GET", "/api/cart/user/7", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(filter("POST", "/api/cart/user/8/items", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+    
+    @Test
+    void signedInCartWritesCountAgainstTheEmail() throws Exception {
+        JwtPrincipal principal = new JwtPrincipal("buyer@example.com", "CUSTOMER", 1L, Long.MAX_VALUE);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+        
+        assertThat(filter("POST", "/api/cart/user/7/items", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(filter("POST", "/api/cart/user/8/items", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(filter("POST", "/api/cart/user/9/items", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+    
+    @Test
+    void loginEmailLimitIgnoresCaseAndRejectionsAreCounted() {
+        rateLimits.checkLoginByEmail("buyer@example.com");
+        rateLimits.checkLoginByEmail("Buyer@Example.com");
+        
+        assertThatThrownBy(() -> rateLimits.checkLoginByEmail("BUYER@example.com"))
+                .isInstanceOf(RateLimitExceededException.class);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> login = (Map<String, Object>) rateLimits.getStats().get("login.per-email");
+        assertThat(login).containsEntry("allowed", 2L).containsEntry("rejected", 1L);
+    }
+    
+    @Test
+    void nothingIsLimitedWhenDisabled() throws Exception {
+        filter = new RateLimitFilter(new RateLimits(false, 1000, "1/1m", "1/1m", "1/1h", "1/1m", "1/1m"));
+        
+        for (int i = 0; i < 5; i++) {
+            assertThat(filter("POST", "/api/auth/register", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+    
+    private MockHttpServletResponse filter(String method, String uri, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContextPath("/api");
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
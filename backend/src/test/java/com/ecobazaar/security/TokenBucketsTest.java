@@ -0,0 +1,102 @@
+package com.ecobazaar.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A bucket allows its capacity as a burst, then one request per refill interval;
+ * concurrent callers never get more than that, and refilled buckets are evicted.
+ */
+class TokenBucketsTest {
+    
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    @Test
+    void burstThenSteadyRefill() {
+        TokenBuckets limit = new TokenBuckets("test", 5, 10, TimeUnit.SECONDS, 100);
+        long now = System.nanoTime();
+        
+        for (int i = 0; i < 5; i++) {
+            assertThat(limit.acquire("10.0.0.1", now)).isZero();
+        }
+        long wait = limit.acquire("10.0.0.1", now);
+        assertThat(wait).isEqualTo(2 * SECOND);
+        
+        // Another key has its own bucket
+        assertThat(limit.acquire("10.0.0.2", now)).isZero();
+        
+        // One token every two seconds
+        assertThat(limit.acquire("10.0.0.1", now + wait)).isZero();
+        assertThat(limit.acquire("10.0.0.1", now + wait)).isPositive();
+        assertThat(limit.getStats()).containsEntry("allowed", 7L).containsEntry("rejected", 2L);
+    }
+    
+    @Test
+    void onlyRefilledBucketsAreEvicted() {
+        TokenBuckets limit = new TokenBuckets("test", 5, 10, TimeUnit.SECONDS, 100);
+        long now = System.nanoTime();
+        limit.acquire("idle", now);
+        limit.acquire("busy", now + 5 * SECOND);
+        
+        assertThat(limit.evictIdle(now + SECOND)).isZero();
+        assertThat(limit.evictIdle(now + 3 * SECOND)).isEqualTo(1);
+        assertThat(limit.getStats()).containsEntry("keys", 1);
+    }
+    
+    @Test
+    void keysBeyondTheMaximumShareOneBucket() {
+        TokenBuckets limit = new TokenBuckets("test", 2, 1, TimeUnit.MINUTES, 2);
+        long now = System.nanoTime();
+        limit.acquire("a", now);
+        limit.acquire("b", now);
+        
+        assertThat(limit.acquire("c", now)).isZero();
+        assertThat(limit.acquire("d", now)).isZero();
+        assertThat(limit.acquire("e", now)).isPositive();
+        assertThat(limit.getStats()).containsEntry("keys", 2);
+    }
+    
+    @Test
+    void concurrentCallersGetExactlyTheBurst() throws Exception {
+        TokenBuckets limit = new TokenBuckets("test", 1000, 1, TimeUnit.HOURS, 100);
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    if (limit.acquire("10.0.0.1") == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        
+        assertThat(granted.get()).isEqualTo(1000);
+        assertThat(limit.getStats()).containsEntry("rejected", 3000L);
+    }
+    
+    @Test
+    void specsAreParsed() {
+        assertThat(TokenBuckets.parse("login", "20/1m", 10).getStats()).containsEntry("limit", "20 per 60s");
+        assertThat(TokenBuckets.parse("register", " 10 / 2h ", 10).getStats()).containsEntry("limit", "10 per 7200s");
+        assertThatThrownBy(() -> TokenBuckets.parse("bad", "20 per minute", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TokenBuckets.parse("bad", "20/1d", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,155 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.AuthResponse;
+import com.ecobazaar.dto.LoginRequest;
+import com.ecobazaar.dto.ProfileUpdateRequest;
+import com.ecobazaar.dto.RegisterRequest;
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.RoleRepository;
+import com.ecobazaar.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import static com.ecobazaar.TestFixtures.suffix;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Guards the login paths: a repeat login reads the user from the principal cache and
+ * only writes its refresh token, and profile, password and role changes are seen by
+ * the very next login. Roles are not loaded where nothing uses them.
+ */
+@SpringBootTest
+class AuthServiceQueryCountTest {
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private ProfileService profileService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    private String email;
+    private Long userId;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (Role.RoleName name : Role.RoleName.values()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (roleRepository.findByName(name).isEmpty()) {
+                    roleRepository.save(new Role(name, name.toString()));
+                }
+            });
+        }
+        
+        email = "login-" + suffix() + "@example.com";
+        userId = authService.register(registration("CUSTOMER")).getId();
+        statistics.clear();
+    }
+    
+    @Test
+    void repeatLoginOnlyWritesTheRefreshToken() {
+        // Principal read, refresh token insert
+        authService.login(login("secret123", "CUSTOMER"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        
+        statistics.clear();
+        AuthResponse response = authService.login(login("secret123", "CUSTOMER"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(response.getId()).isEqualTo(userId);
+        assertThat(response.getFullName()).isEqualTo("Login Tester");
+        
+        // Rotation lock and user read, rotated row update, new row insert; roles come from the cache
+        statistics.clear();
+        authService.refresh(response.getRefreshToken());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+    
+    @Test
+    void passwordChangeIsSeenByTheNextLogin() {
+        authService.login(login("secret123", "CUSTOMER"));
+        
+        profileService.updatePassword(userId, "secret123", "secret456");
+        
+        assertThatThrownBy(() -> authService.login(login("secret123", "CUSTOMER")))
+                .hasMessage("Invalid email or password!");
+        assertThat(authService.login(login("secret456", "CUSTOMER")).getToken()).isNotBlank();
+    }
+    
+    @Test
+    void roleAndProfileChangesAreSeenByTheNextLogin() {
+        assertThatThrownBy(() -> authService.login(login("secret123", "SELLER")))
+                .hasMessageContaining("don't have SELLER role");
+        
+        authService.register(registration("SELLER"));
+        ProfileUpdateRequest update = new ProfileUpdateRequest();
+        update.setFullName("Renamed Tester");
+        update.setEcoCommitment(true);
+        update.setNotificationOrders(true);
+        update.setNotificationPromotions(false);
+        update.setNotificationSustainability(true);
+        profileService.updateProfile(userId, update);
+        
+        AuthResponse response = authService.login(login("secret123", "SELLER"));
+        assertThat(response.getRole()).isEqualTo("SELLER");
+        assertThat(response.getFullName()).isEqualTo("Renamed Tester");
+    }
+    
+    @Test
+    void addingARoleToAnExistingEmailNeedsItsPassword() {
+        RegisterRequest takeover = registration("SELLER");
+        takeover.setPassword("guessed1");
+        
+        assertThatThrownBy(() -> authService.register(takeover)).hasMessage("Invalid email or password!");
+        assertThatThrownBy(() -> authService.login(login("secret123", "SELLER")))
+                .hasMessageContaining("don't have SELLER role");
+        assertThat(authService.register(registration("SELLER")).getToken()).isNotBlank();
+    }
+    
+    @Test
+    void loadingAUserLeavesRolesUnloaded() {
+        User user = userRepository.findById(userId).orElseThrow();
+        
+        assertThat(Hibernate.isInitialized(user.getRoles())).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    private RegisterRequest registration(String role) {
+        RegisterRequest request = new RegisterRequest();
+        request.setFullName("Login Tester");
+        request.setEmail(email);
+        request.setPassword("secret123");
+        request.setRole(role);
+        return request;
+    }
+    
+    private LoginRequest login(String password, String role) {
+        LoginRequest request = new LoginRequest();
+        request.setEmail(email);
+        request.setPassword(password);
+        request.setRole(role);
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartBatchRequest;
+import com.ecobazaar.dto.CartItemResponse;
+import com.ecobazaar.dto.CartOperationRequest;
+import com.ecobazaar.dto.CartResponse;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers one cart from many threads with single adds and read-modify-write batches,
+ * starting before the cart exists. With per-user serialization no write is lost, the
+ * cart is created exactly once and the running totals match the lines.
+ */
+@SpringBootTest
+class CartConcurrencyTest {
+    
+    private static final int THREADS = 12;
+    private static final int ROUNDS = 25;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private Long buyerId;
+    private Long firstProductId;
+    private Long secondProductId;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = suffix();
+        Long sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        buyerId = userRepository.save(user("buyer-" + suffix)).getId();
+        firstProductId = productService.createProduct(product("Cotton tote " + suffix, "3.00", 10000, "0.10"), sellerId).getId();
+        secondProductId = productService.createProduct(product("Glass straw " + suffix, "3.00", 10000, "0.10"), sellerId).getId();
+    }
+    
+    @Test
+    void concurrentWritesToOneCartAreNotLost() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for (int t = 0; t < THREADS; t++) {
+            boolean batches = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    if (batches) {
+                        // The batch path reads the lines and writes back absolute quantities
+                        cartService.applyBatch(buyerId, new CartBatchRequest(List.of(
+                                new CartOperationRequest("add", firstProductId, 1),
+                                new CartOperationRequest("add", secondProductId, 2))));
+                    } else {
+                        cartService.addToCart(buyerId, item(firstProductId, 1));
+                    }
+                }
+                return null;
+            }));
+        }
+        
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        
+        CartResponse cart = cartService.getUserCart(buyerId);
+        Map<Long, Integer> quantities = cart.getItems().stream()
+                .collect(Collectors.toMap(CartItemResponse::getProductId, CartItemResponse::getQuantity));
+        
+        int batchThreads = (THREADS + 1) / 2;
+        int first = THREADS * ROUNDS;
+        int second = batchThreads * ROUNDS * 2;
+        assertThat(quantities).isEqualTo(Map.of(firstProductId, first, secondProductId, second));
+        assertThat(cart.getTotalItems()).isEqualTo(first + second);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo(new BigDecimal("3.00").multiply(BigDecimal.valueOf(first + second)));
+    }
+}
@@ -0,0 +1,215 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartBatchRequest;
+import com.ecobazaar.dto.CartDeltaResponse;
+import com.ecobazaar.dto.CartItemResponse;
+import com.ecobazaar.dto.CartOperationRequest;
+import com.ecobazaar.dto.CartResponse;
+import com.ecobazaar.dto.ProductRequest;
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Guards the cart write paths: once a cart exists, adding an item is one upsert, one
+ * running-totals update and one joined read, and a batch writes each touched line
+ * once however many operations it holds. Also checks that the persisted totals stay
+ * in step with the lines.
+ */
+@SpringBootTest
+class CartServiceQueryCountTest {
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    private Long sellerId;
+    private Long buyerId;
+    private Long firstProductId;
+    private Long secondProductId;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        String suffix = suffix();
+        sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        buyerId = userRepository.save(user("buyer-" + suffix)).getId();
+        
+        firstProductId = productService.createProduct(product("Jute bag " + suffix, "10.00", 50, "1.20"), sellerId).getId();
+        secondProductId = productService.createProduct(product("Steel bottle " + suffix, "10.00", 50, "1.20"), sellerId).getId();
+        
+        // The first add creates the cart; the counts below are for an existing cart
+        cartService.addToCart(buyerId, item(firstProductId, 1));
+        statistics.clear();
+    }
+    
+    @Test
+    void addingNewLineUsesUpsertTotalsAndJoinedRead() {
+        CartResponse cart = cartService.addToCart(buyerId, item(secondProductId, 2));
+        
+        assertThat(cart.getItems()).hasSize(2);
+        assertThat(cart.getItems()).allSatisfy(line -> assertThat(line.getProductSeller()).isNotNull());
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("30.00");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+    
+    @Test
+    void addingExistingLineIncrementsInPlace() {
+        CartResponse cart = cartService.addToCart(buyerId, item(firstProductId, 4));
+        
+        assertThat(cart.getItems()).singleElement()
+                .satisfies(line -> assertThat(line.getQuantity()).isEqualTo(5));
+        assertThat(cart.getTotalCarbonFootprint()).isEqualByComparingTo("6.00");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+    
+    @Test
+    void batchCoalescesStepsIntoOneWritePerLine() {
+        List<CartOperationRequest> operations = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            operations.add(new CartOperationRequest("add", secondProductId, 1));
+            operations.add(new CartOperationRequest("set", firstProductId, i));
+        }
+        operations.add(new CartOperationRequest("remove", secondProductId, null));
+        operations.add(new CartOperationRequest("add", secondProductId, 2));
+        
+        CartResponse cart = cartService.applyBatch(buyerId, new CartBatchRequest(operations));
+        
+        assertThat(cart.getItems()).extracting(CartItemResponse::getQuantity).containsExactly(10, 2);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("120.00");
+        // cart lookup, pricing, existing lines, one insert, one line update, cart totals, joined read
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(7);
+    }
+    
+    @Test
+    void failedBatchLeavesCartUnchanged() {
+        List<CartOperationRequest> operations = List.of(
+                new CartOperationRequest("add", firstProductId, 2),
+                new CartOperationRequest("set", secondProductId, 3));
+        
+        assertThatThrownBy(() -> cartService.applyBatch(buyerId, new CartBatchRequest(operations)))
+                .hasMessageContaining("Cart item not found");
+        assertThat(cartService.getUserCart(buyerId).getItems()).singleElement()
+                .satisfies(line -> assertThat(line.getQuantity()).isEqualTo(1));
+    }
+    
+    @Test
+    void totalsFollowUpdatesRemovalsAndPriceChanges() {
+        cartService.addToCart(buyerId, item(secondProductId, 3));
+        cartService.updateCartItem(buyerId, firstProductId, 2);
+        CartResponse cart = cartService.removeFromCart(buyerId, secondProductId);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("20.00");
+        assertThat(cart.getTotalItems()).isEqualTo(2);
+        
+        ProductRequest repriced = product("Jute bag repriced", "12.50", 50, "0.85");
+        repriced.setIsActive(true);
+        productService.updateProduct(firstProductId, repriced, sellerId);
+        
+        cart = cartService.getUserCart(buyerId);
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("25.00");
+        assertThat(cart.getTotalCarbonFootprint()).isEqualByComparingTo("1.70");
+        assertThat(cart.getItems()).singleElement()
+                .satisfies(line -> assertThat(line.getLineTotal()).isEqualByComparingTo("25.00"));
+    }
+    
+    @Test
+    void deltaResponsesCarryTouchedLinesAndVersion() {
+        CartDeltaResponse added = cartService.addToCartDelta(buyerId, item(secondProductId, 2));
+        assertThat(added.getChangedItems()).singleElement()
+                .satisfies(line -> assertThat(line.getProductId()).isEqualTo(secondProductId));
+        assertThat(added.getRemovedProductIds()).isEmpty();
+        assertThat(added.getTotalItems()).isEqualTo(3);
+        assertThat(added.getVersion()).isEqualTo(2L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        
+        CartDeltaResponse removed = cartService.removeFromCartDelta(buyerId, firstProductId);
+        assertThat(removed.getChangedItems()).isEmpty();
+        assertThat(removed.getRemovedProductIds()).containsExactly(firstProductId);
+        assertThat(removed.getSubtotal()).isEqualByComparingTo("20.00");
+        assertThat(removed.getVersion()).isEqualTo(3L);
+        
+        // A client that missed a version resyncs from the full cart
+        assertThat(cartService.getUserCart(buyerId).getVersion()).isEqualTo(3L);
+    }
+    
+    @Test
+    void readingMissingCartWritesNothing() {
+        Long newcomerId = userRepository.save(user("newcomer-" + suffix())).getId();
+        statistics.clear();
+        
+        CartResponse cart = cartService.getUserCart(newcomerId);
+        
+        assertThat(cart.getId()).isNull();
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("0");
+        assertThat(cart.getVersion()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(cartRepository.findByUserId(newcomerId)).isEmpty();
+        
+        // The first mutation creates the cart
+        assertThat(cartService.addToCart(newcomerId, item(firstProductId, 1)).getId()).isNotNull();
+    }
+    
+    @Test
+    void readingEmptiedCartKeepsTheStoredCart() {
+        Long cartId = cartService.getUserCart(buyerId).getId();
+        cartService.removeFromCart(buyerId, firstProductId);
+        statistics.clear();
+        
+        CartResponse cart = cartService.getUserCart(buyerId);
+        
+        assertThat(cart.getId()).isEqualTo(cartId);
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cart.getTotalItems()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void addsCountTheExistingLineAgainstStock() {
+        cartService.addToCart(buyerId, item(firstProductId, 40));
+        
+        assertThatThrownBy(() -> cartService.addToCart(buyerId, item(firstProductId, 10)))
+                .hasMessageContaining("left in stock");
+        assertThatThrownBy(() -> cartService.applyBatch(buyerId, new CartBatchRequest(
+                List.of(new CartOperationRequest("add", firstProductId, 10)))))
+                .hasMessageContaining("left in stock");
+        assertThat(cartService.getUserCart(buyerId).getItems()).singleElement()
+                .satisfies(line -> assertThat(line.getQuantity()).isEqualTo(41));
+    }
+    
+    @Test
+    void addingUnknownProductFails() {
+        assertThatThrownBy(() -> cartService.addToCart(buyerId, item(-1L, 1)))
+                .hasMessageContaining("Product not found");
+    }
+}
@@ -0,0 +1,143 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartLineRow;
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In write-behind mode a cart that cannot be written does not hold back the rest of
+ * its batch, and after max-flush-attempts failures it is dropped from memory. Two
+ * flushes of the same cart never overtake each other.
+ */
+// Own database: this context recreates the schema, which would pull it from under the shared one
+@SpringBootTest(properties = { "cart.store.enabled=true", "cart.store.durability=write-behind",
+        "cart.store.flush-interval-ms=3600000", "cart.store.max-flush-attempts=2",
+        "spring.datasource.url=jdbc:h2:mem:cartflush;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000" })
+class CartStoreFlushFailureTest {
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Test
+    void failingCartIsRetriedAloneThenDropped() {
+        String suffix = suffix();
+        Long sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        Long goodBuyerId = userRepository.save(user("good-" + suffix)).getId();
+        Long badBuyerId = userRepository.save(user("bad-" + suffix)).getId();
+        Long kept = productService.createProduct(product("Jute bag " + suffix, "6.50", 20, "0.30"), sellerId).getId();
+        Long deleted = productService.createProduct(product("Cork mat " + suffix, "6.50", 20, "0.30"), sellerId).getId();
+        
+        cartService.addToCart(goodBuyerId, item(kept, 1));
+        cartService.addToCart(badBuyerId, item(deleted, 1));
+        // The bad cart's line now points at a missing product, so its flush fails on the foreign key
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", deleted);
+        
+        cartStore.flushDirty();
+        
+        List<CartLineRow> goodRows = cartRepository.findCartLines(goodBuyerId);
+        assertThat(goodRows).singleElement().satisfies(row -> assertThat(row.productId()).isEqualTo(kept));
+        assertThat(cartStore.holds(badBuyerId)).isTrue();
+        
+        cartStore.flushDirty();
+        
+        assertThat(cartStore.holds(badBuyerId)).isFalse();
+        assertThat(cartService.getUserCart(badBuyerId).getItems()).isEmpty();
+    }
+    
+    @Test
+    void aNewerFlushWaitsForTheOneWritingTheCart() throws Exception {
+        String suffix = suffix();
+        Long sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        Long buyerId = userRepository.save(user("buyer-" + suffix)).getId();
+        Long productId = productService.createProduct(product("Steel tin " + suffix, "6.50", 20, "0.30"), sellerId).getId();
+        cartService.addToCart(buyerId, item(productId, 1));
+        cartStore.flushDirty();
+        Long cartId = cartRepository.findCartLines(buyerId).get(0).cartId();
+        
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // Hold the cart row so the first flush stalls in the middle of its write
+            Future<?> lock = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForList("SELECT id FROM cart WHERE id = ? FOR UPDATE", cartId);
+                locked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+            
+            cartService.addToCart(buyerId, item(productId, 1));
+            Future<?> older = executor.submit(cartStore::flushDirty);
+            while (flushing(buyerId) == 0) {
+                Thread.sleep(5);
+            }
+            
+            cartService.addToCart(buyerId, item(productId, 1));
+            Future<?> newer = executor.submit(cartStore::flushDirty);
+            // The newer flush waits instead of taking a snapshot that could commit first
+            Thread.sleep(100);
+            assertThat(flushing(buyerId)).isEqualTo(1);
+            release.countDown();
+            
+            lock.get(10, TimeUnit.SECONDS);
+            older.get(10, TimeUnit.SECONDS);
+            newer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        long version = cartService.getUserCart(buyerId).getVersion();
+        assertThat(cartRepository.findCartLines(buyerId)).singleElement().satisfies(row -> {
+            assertThat(row.quantity()).isEqualTo(3);
+            assertThat(row.cartVersion()).isEqualTo(version);
+        });
+    }
+    
+    // How many flushes are writing the user's cached cart
+    private int flushing(Long userId) {
+        Map<?, ?> carts = (Map<?, ?>) ReflectionTestUtils.getField(cartStore, "carts");
+        return (int) ReflectionTestUtils.getField(carts.get(userId), "flushing");
+    }
+}
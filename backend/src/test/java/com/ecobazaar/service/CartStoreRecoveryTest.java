@@ -0,0 +1,172 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.CartBatchRequest;
+import com.ecobazaar.dto.CartDeltaResponse;
+import com.ecobazaar.dto.CartItemResponse;
+import com.ecobazaar.dto.CartLineRow;
+import com.ecobazaar.dto.CartOperationRequest;
+import com.ecobazaar.dto.CartResponse;
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * In sync mode every acknowledged cart mutation must already be in the database:
+ * after the in-memory store is dropped without a flush (a crash), the stored cart
+ * matches the last acknowledged response.
+ */
+// Own database: this context recreates the schema, which would pull it from under the shared one
+@SpringBootTest(properties = { "cart.store.enabled=true", "cart.store.durability=sync",
+        "spring.datasource.url=jdbc:h2:mem:cartstore;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+class CartStoreRecoveryTest {
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    private Long buyerId;
+    private Long[] productIds;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = suffix();
+        Long sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        buyerId = userRepository.save(user("buyer-" + suffix)).getId();
+        
+        productIds = new Long[3];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = productService.createProduct(product("Beeswax wrap " + i + " " + suffix, "6.50", 20, "0.30"), sellerId).getId();
+        }
+    }
+    
+    @Test
+    void storedCartMatchesLastAcknowledgedStateAfterCrash() {
+        cartService.addToCart(buyerId, item(productIds[0], 2));
+        cartService.addToCart(buyerId, item(productIds[1], 1));
+        cartService.addToCart(buyerId, item(productIds[0], 3));
+        cartService.updateCartItem(buyerId, productIds[1], 4);
+        cartService.addToCart(buyerId, item(productIds[2], 1));
+        CartResponse acknowledged = cartService.removeFromCart(buyerId, productIds[2]);
+        
+        // A mutation that fails must not leave anything behind
+        assertThatThrownBy(() -> cartService.updateCartItem(buyerId, productIds[2], 7))
+                .hasMessageContaining("Cart item not found");
+        
+        cartStore.discardAll();
+        
+        assertThat(storedQuantities()).isEqualTo(Map.of(productIds[0], 5, productIds[1], 4));
+        assertThat(MinorUnits.fromCents(cartRepository.findCartLines(buyerId).get(0).cartSubtotalCents()))
+                .isEqualByComparingTo(acknowledged.getSubtotal());
+        assertThat(quantities(cartService.getUserCart(buyerId))).isEqualTo(quantities(acknowledged));
+        assertThat(cartService.getUserCart(buyerId).getId()).isEqualTo(acknowledged.getId());
+        assertThat(cartService.getUserCart(buyerId).getVersion()).isEqualTo(acknowledged.getVersion());
+    }
+    
+    @Test
+    void deltaFromMemoryListsOnlyTouchedProducts() {
+        cartService.addToCart(buyerId, item(productIds[0], 1));
+        CartDeltaResponse delta = cartService.addToCartDelta(buyerId, item(productIds[1], 2));
+        
+        assertThat(delta.getChangedItems()).singleElement()
+                .satisfies(line -> assertThat(line.getQuantity()).isEqualTo(2));
+        assertThat(delta.getTotalItems()).isEqualTo(3);
+        assertThat(delta.getVersion()).isEqualTo(2L);
+        
+        delta = cartService.removeFromCartDelta(buyerId, productIds[0]);
+        assertThat(delta.getRemovedProductIds()).containsExactly(productIds[0]);
+        assertThat(delta.getVersion()).isEqualTo(3L);
+    }
+    
+    @Test
+    void addsCountTheExistingLineAgainstStock() {
+        cartService.addToCart(buyerId, item(productIds[0], 15));
+        
+        assertThatThrownBy(() -> cartService.addToCart(buyerId, item(productIds[0], 6)))
+                .hasMessageContaining("left in stock");
+        assertThatThrownBy(() -> cartService.applyBatch(buyerId, new CartBatchRequest(
+                List.of(new CartOperationRequest("add", productIds[0], 6)))))
+                .hasMessageContaining("left in stock");
+        assertThat(storedQuantities()).isEqualTo(Map.of(productIds[0], 15));
+    }
+    
+    @Test
+    void clearedCartStaysEmptyAfterCrash() {
+        cartService.addToCart(buyerId, item(productIds[0], 1));
+        cartService.addToCart(buyerId, item(productIds[1], 1));
+        cartService.clearCart(buyerId);
+        
+        cartStore.discardAll();
+        
+        assertThat(storedQuantities()).isEmpty();
+        assertThat(cartService.getUserCart(buyerId).getItems()).isEmpty();
+    }
+    
+    @Test
+    void checkoutEmptiesTheStoredCartWithTheOrder() {
+        cartService.addToCart(buyerId, item(productIds[0], 2));
+        
+        assertThat(orderService.checkout(buyerId).getTotalItems()).isEqualTo(2);
+        assertThat(storedQuantities()).isEmpty();
+        assertThat(cartStore.holds(buyerId)).isFalse();
+        
+        cartStore.discardAll();
+        assertThatThrownBy(() -> orderService.checkout(buyerId)).hasMessageContaining("Cart is empty");
+    }
+    
+    @Test
+    void sweeperBlocksLoadsOnlyOfCartsNotInMemory() throws Exception {
+        cartService.addToCart(buyerId, item(productIds[0], 1));
+        assertThat(cartStore.blockLoads(buyerId)).isFalse();
+        
+        cartStore.discardAll();
+        assertThat(cartStore.blockLoads(buyerId)).isTrue();
+        CompletableFuture<CartResponse> read = CompletableFuture.supplyAsync(() -> cartService.getUserCart(buyerId));
+        Thread.sleep(200);
+        assertThat(read).isNotDone();
+        
+        cartStore.unblockLoads(buyerId);
+        assertThat(read.get(5, TimeUnit.SECONDS).getItems()).hasSize(1);
+    }
+    
+    private Map<Long, Integer> storedQuantities() {
+        List<CartLineRow> rows = cartRepository.findCartLines(buyerId);
+        return rows.stream()
+                .filter(row -> row.itemId() != null)
+                .collect(Collectors.toMap(CartLineRow::productId, CartLineRow::quantity));
+    }
+    
+    private static Map<Long, Integer> quantities(CartResponse cart) {
+        return cart.getItems().stream()
+                .collect(Collectors.toMap(CartItemResponse::getProductId, CartItemResponse::getQuantity));
+    }
+}
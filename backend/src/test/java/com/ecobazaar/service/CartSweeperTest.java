@@ -0,0 +1,86 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.repository.CartRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The sweeper deletes carts idle past the cutoff with their lines and leaves recently
+ * used carts alone.
+ */
+@SpringBootTest
+class CartSweeperTest {
+    
+    @Autowired
+    private CartSweeper cartSweeper;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long[] buyerIds;
+    private Long productId;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = suffix();
+        Long sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        productId = productService.createProduct(product("Bamboo brush " + suffix, "3.00", 20, "0.10"), sellerId).getId();
+        
+        buyerIds = new Long[3];
+        for (int i = 0; i < buyerIds.length; i++) {
+            buyerIds[i] = userRepository.save(user("buyer-" + i + "-" + suffix)).getId();
+            cartService.addToCart(buyerIds[i], item(productId, i + 1));
+        }
+    }
+    
+    @Test
+    void removesOnlyCartsIdlePastTheCutoff() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        backdate(buyerIds[0], cutoff.minusDays(5));
+        backdate(buyerIds[1], cutoff.minusMinutes(1));
+        
+        CartSweeper.Sweep sweep = cartSweeper.sweepIdleSince(cutoff);
+        
+        assertThat(sweep.carts()).isEqualTo(2);
+        assertThat(sweep.lines()).isEqualTo(2);
+        assertThat(cartRepository.findByUserId(buyerIds[0])).isEmpty();
+        assertThat(cartRepository.findByUserId(buyerIds[1])).isEmpty();
+        assertThat(cartRepository.findCartLines(buyerIds[2])).singleElement()
+                .satisfies(row -> assertThat(row.quantity()).isEqualTo(3));
+        
+        // Nothing left to do on the next run
+        assertThat(cartSweeper.sweepIdleSince(cutoff).carts()).isZero();
+        
+        // A swept user starts over with a fresh cart
+        assertThat(cartService.addToCart(buyerIds[0], item(productId, 1)).getTotalItems()).isEqualTo(1);
+    }
+    
+    private void backdate(Long userId, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE cart SET updated_at = ? WHERE user_id = ?", Timestamp.valueOf(updatedAt), userId);
+    }
+}
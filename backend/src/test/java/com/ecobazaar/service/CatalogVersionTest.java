@@ -0,0 +1,69 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The catalog version comes from the products table: a write on this node moves it as
+ * soon as it commits, and a write made by another node (here straight over JDBC) moves
+ * it at the next poll.
+ */
+@SpringBootTest
+class CatalogVersionTest {
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long sellerId;
+    private String suffix;
+    
+    @BeforeEach
+    void setUp() {
+        suffix = suffix();
+        sellerId = userRepository.save(user("seller-" + suffix)).getId();
+    }
+    
+    @Test
+    void writeOnThisNodeMovesTheVersionAtOnce() {
+        Long productId = productService.createProduct(product("Jute bag " + suffix, "6.00", 10, "0.40"), sellerId).getId();
+        String before = catalogVersion.current();
+        
+        productService.updateProduct(productId, product("Jute bag " + suffix, "5.50", 10, "0.40"), sellerId);
+        
+        assertThat(catalogVersion.current()).isNotEqualTo(before);
+    }
+    
+    @Test
+    void writeOnAnotherNodeMovesTheVersionAtTheNextPoll() {
+        Long productId = productService.createProduct(product("Cork mat " + suffix, "9.00", 10, "0.70"), sellerId).getId();
+        String before = catalogVersion.current();
+        
+        jdbcTemplate.update("UPDATE products SET stock_quantity = stock_quantity - 1, updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusSeconds(1)), productId);
+        assertThat(catalogVersion.current()).isEqualTo(before);
+        
+        catalogVersion.reload();
+        assertThat(catalogVersion.current()).isNotEqualTo(before);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.OrderResponse;
+import com.ecobazaar.repository.ProductRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.ecobazaar.TestFixtures.item;
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checkout turns the cart into an order and reserves its stock in one short step; the
+ * fulfilment stages then sell the stock, account the carbon and notify buyer and seller.
+ */
+@SpringBootTest
+class OrderCheckoutTest {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private OrderFulfilment fulfilment;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ProfileService profileService;
+    
+    @Autowired
+    private NotificationService notificationService;
+    
+    @Autowired
+    private StockReservations stockReservations;
+    
+    @Autowired
+    private ProductRepository productRepository;
+
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private Long sellerId;
+    private Long buyerId;
+    private Long firstProductId;
+    private Long secondProductId;
+    
+    @BeforeEach
+    void setUp() {
+        String suffix = suffix();
+        sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        buyerId = userRepository.save(user("buyer-" + suffix)).getId();
+        
+        firstProductId = productService.createProduct(product("Loofah " + suffix, "2.50", 10, "0.50"), sellerId).getId();
+        secondProductId = productService.createProduct(product("Soap bar " + suffix, "2.50", 10, "0.50"), sellerId).getId();
+    }
+    
+    @Test
+    void checkoutPlacesOrderAndEmptiesCart() {
+        cartService.addToCart(buyerId, item(firstProductId, 3));
+        cartService.addToCart(buyerId, item(secondProductId, 2));
+        
+        OrderResponse order = orderService.checkout(buyerId);
+        
+        assertThat(order.getItems()).hasSize(2);
+        assertThat(order.getSubtotal()).isEqualByComparingTo("12.50");
+        assertThat(order.getTotalItems()).isEqualTo(5);
+        assertThat(cartService.getUserCart(buyerId).getItems()).isEmpty();
+        assertThat(stockReservations.available(firstProductId)).isEqualTo(7);
+        assertThat(orderService.getUserOrders(buyerId)).extracting(OrderResponse::getId).containsExactly(order.getId());
+    }
+    
+    @Test
+    void fulfilmentRunsEveryStage() {
+        cartService.addToCart(buyerId, item(firstProductId, 4));
+        OrderResponse order = orderService.checkout(buyerId);
+        
+        fulfilment.processAll();
+        
+        assertThat(orderService.getOrder(order.getId()).getFulfilmentStage()).isEqualTo("DONE");
+        assertThat(productRepository.findStockQuantityById(firstProductId)).contains(6);
+        assertThat(stockReservations.available(firstProductId)).isEqualTo(6);
+        assertThat(profileService.getUserProfile(buyerId).getPurchasedCarbonFootprint()).isEqualByComparingTo("2.00");
+        assertThat(notificationService.getUserNotifications(buyerId)).singleElement()
+                .satisfies(n -> assertThat(n.getMessage()).contains("#" + order.getId()));
+        assertThat(notificationService.getUserNotifications(sellerId)).singleElement()
+                .satisfies(n -> assertThat(n.getMessage()).contains("4 units"));
+    }
+    
+    @Test
+    void checkoutHoldsOutliveTheReservationTtl() throws Exception {
+        cartService.addToCart(buyerId, item(firstProductId, 3));
+        Object ttlSeconds = ReflectionTestUtils.getField(stockReservations, "ttlSeconds");
+        ReflectionTestUtils.setField(stockReservations, "ttlSeconds", 0L);
+        try {
+            orderService.checkout(buyerId);
+        } finally {
+            ReflectionTestUtils.setField(stockReservations, "ttlSeconds", ttlSeconds);
+        }
+        
+        // Fulfilment is late: the expiry sweep must not hand the order's units to other buyers
+        Thread.sleep(5);
+        stockReservations.expireReservations();
+        assertThat(stockReservations.available(firstProductId)).isEqualTo(7);
+        
+        fulfilment.processAll();
+        assertThat(stockReservations.available(firstProductId)).isEqualTo(7);
+        assertThat(productRepository.findStockQuantityById(firstProductId)).contains(7);
+    }
+    
+    @Test
+    void checkoutWithoutEnoughStockChangesNothing() {
+        cartService.addToCart(buyerId, item(firstProductId, 2));
+        cartService.addToCart(buyerId, item(secondProductId, 5));
+        productService.updateProduct(secondProductId, product("Soap bar", "2.50", 3, "0.50"), sellerId);
+        
+        assertThatThrownBy(() -> orderService.checkout(buyerId))
+                .hasMessageContaining("Insufficient stock");
+        
+        assertThat(cartService.getUserCart(buyerId).getItems()).hasSize(2);
+        assertThat(stockReservations.available(firstProductId)).isEqualTo(10);
+        assertThat(orderService.getUserOrders(buyerId)).isEmpty();
+    }
+    
+    @Test
+    void emptyCartCannotBeCheckedOut() {
+        assertThatThrownBy(() -> orderService.checkout(buyerId))
+                .hasMessageContaining("Cart is empty");
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A load is cached unless its own product was invalidated while it ran; writes to
+ * other products do not stop it. The cache stays within its bound.
+ */
+class ProductDetailCacheTest {
+    
+    private final ProductDetailCache cache = new ProductDetailCache(10, 300);
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @Test
+    void invalidatingTheSameProductDuringALoadKeepsTheResultOut() {
+        cache.get(1L, id -> {
+            cache.invalidate(1L);
+            return load(id);
+        });
+        cache.get(1L, this::load);
+        
+        assertThat(loads.get()).isEqualTo(2);
+    }
+    
+    @Test
+    void invalidatingAnotherProductDuringALoadStillCaches() {
+        cache.get(1L, id -> {
+            cache.invalidate(2L);
+            return load(id);
+        });
+        cache.get(1L, this::load);
+        
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getStats()).containsEntry("hits", 1L);
+    }
+    
+    @Test
+    void recentlyUsedEntriesSurviveTrimming() {
+        for (long id = 1; id <= 10; id++) {
+            cache.get(id, this::load);
+        }
+        cache.get(11L, this::load);
+        
+        assertThat((Integer) cache.getStats().get("size")).isLessThanOrEqualTo(10);
+        cache.get(11L, this::load);
+        assertThat(loads.get()).isEqualTo(11);
+    }
+    
+    private ProductResponse load(Long id) {
+        loads.incrementAndGet();
+        ProductResponse response = new ProductResponse();
+        response.setId(id);
+        return response;
+    }
+}
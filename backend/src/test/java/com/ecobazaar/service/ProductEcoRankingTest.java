@@ -0,0 +1,64 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pages read from the chunked ranking match a full sort of the live products, in
+ * both directions, after a mix of inserts, moves and removals that splits and
+ * empties chunks.
+ */
+class ProductEcoRankingTest {
+
+    private final ProductEcoRanking ranking = new ProductEcoRanking();
+
+    @Test
+    void pagesMatchAFullSortAfterRandomWrites() {
+        Random random = new Random(7);
+        Map<Long, Long> carbonById = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long id = 1 + random.nextInt(2_000);
+            Product product = product(id, random.nextInt(50));
+            if (random.nextInt(4) == 0) {
+                product.setIsActive(false);
+                carbonById.remove(id);
+            } else {
+                carbonById.put(id, ProductFacetIndex.toHundredths(product.getCarbonFootprint()));
+            }
+            ranking.index(product);
+        }
+
+        List<Long> expected = new ArrayList<>(carbonById.keySet());
+        expected.sort(Comparator.<Long>comparingLong(carbonById::get).thenComparing(Comparator.reverseOrder()));
+
+        for (int page = 0; page * 37 < expected.size() + 37; page++) {
+            ProductEcoRanking.RankedPage ascending = ranking.page(ProductEcoRanking.CARBON_FOOTPRINT, null, false, page, 37);
+            ProductEcoRanking.RankedPage descending = ranking.page(ProductEcoRanking.CARBON_FOOTPRINT, null, true, page, 37);
+
+            int from = Math.min(page * 37, expected.size());
+            int to = Math.min(from + 37, expected.size());
+            assertThat(ascending.total()).isEqualTo(expected.size());
+            assertThat(ascending.productIds()).containsExactlyElementsOf(expected.subList(from, to));
+            assertThat(descending.productIds())
+                    .containsExactlyElementsOf(expected.reversed().subList(from, to));
+        }
+    }
+
+    private static Product product(long id, long carbonKg) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCarbonFootprint(BigDecimal.valueOf(carbonKg));
+        product.setRating(BigDecimal.valueOf(4));
+        return product;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range filters answered from the level bitsets match a plain scan of the values,
+ * and retired products give their slots to new ones.
+ */
+class ProductFacetIndexTest {
+
+    private final ProductFacetIndex index = new ProductFacetIndex();
+    private final List<Product> products = new ArrayList<>();
+
+    @Test
+    void rangeFiltersMatchAScanOfTheValues() {
+        Random random = new Random(42);
+        for (long id = 1; id <= 500; id++) {
+            products.add(product(id, random.nextInt(200_000), random.nextInt(3_000), random.nextInt(501)));
+        }
+        products.forEach(index::index);
+
+        for (int i = 0; i < 200; i++) {
+            Long minPrice = random.nextBoolean() ? (long) random.nextInt(200_000) : null;
+            Long maxPrice = random.nextBoolean() ? (long) random.nextInt(200_000) : null;
+            Long minCarbon = random.nextBoolean() ? (long) random.nextInt(3_000) : null;
+            Long maxCarbon = random.nextBoolean() ? (long) random.nextInt(3_000) : null;
+            Long minRating = random.nextBoolean() ? (long) random.nextInt(501) : null;
+
+            ProductFacetIndex.Result result = index.filter(new ProductFacetIndex.Criteria(
+                    null, null, minPrice, maxPrice, minCarbon, maxCarbon, minRating, false), "id", false, 0, 1_000);
+
+            List<Long> expected = products.stream()
+                    .filter(p -> within(p.getPrice(), minPrice, maxPrice))
+                    .filter(p -> within(p.getCarbonFootprint(), minCarbon, maxCarbon))
+                    .filter(p -> within(p.getRating(), minRating, null))
+                    .map(Product::getId)
+                    .toList();
+            assertThat(result.productIds()).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void retiredSlotsAreReused() {
+        for (long id = 1; id <= 10; id++) {
+            index.index(product(id, 1_000, 100, 400));
+        }
+        for (long id = 1; id <= 5; id++) {
+            Product retired = product(id, 1_000, 100, 400);
+            retired.setIsActive(false);
+            index.index(retired);
+        }
+        for (long id = 11; id <= 15; id++) {
+            index.index(product(id, 1_000, 100, 400));
+        }
+
+        Object columns = ReflectionTestUtils.getField(index, "columns");
+        assertThat(ReflectionTestUtils.getField(columns, "size")).isEqualTo(10);
+
+        ProductFacetIndex.Result result = index.filter(new ProductFacetIndex.Criteria(
+                null, null, null, null, null, null, null, false), "id", false, 0, 100);
+        assertThat(result.productIds()).containsExactlyInAnyOrder(6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L);
+    }
+
+    private static boolean within(BigDecimal value, Long min, Long max) {
+        long units = ProductFacetIndex.toHundredths(value);
+        return (min == null || units >= min) && (max == null || units <= max);
+    }
+
+    private static Product product(long id, long priceCents, long carbonCents, long ratingCents) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(BigDecimal.valueOf(priceCents, 2));
+        product.setCarbonFootprint(BigDecimal.valueOf(carbonCents, 2));
+        product.setRating(BigDecimal.valueOf(ratingCents, 2));
+        product.setStockQuantity(1);
+        return product;
+    }
+}
@@ -0,0 +1,192 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.dto.ProductFilterRequest;
+import com.ecobazaar.dto.ProductFilterResponse;
+import com.ecobazaar.dto.ProductRequest;
+import com.ecobazaar.dto.ProductResponse;
+import com.ecobazaar.dto.ProductSliceResponse;
+import com.ecobazaar.entity.Category;
+import com.ecobazaar.repository.CategoryRepository;
+import com.ecobazaar.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the listing read model against N+1 regressions: every list endpoint must
+ * load its rows (category and seller included) in a fixed number of statements,
+ * however many products the page holds.
+ */
+@SpringBootTest
+class ProductServiceQueryCountTest {
+    
+    private static final int PRODUCT_COUNT = 12;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    private Long sellerId;
+    private Long categoryId;
+    private String searchTerm;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        String suffix = suffix();
+        searchTerm = "bamboo" + suffix;
+        
+        sellerId = userRepository.save(user("seller-" + suffix)).getId();
+        
+        categoryId = categoryRepository.save(new Category("Category " + suffix, "test")).getId();
+        
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            ProductRequest request = product(searchTerm + " toothbrush " + i, "4.99", 10, "0.40");
+            request.setCategoryId(categoryId);
+            productService.createProduct(request, sellerId);
+        }
+        
+        statistics.clear();
+    }
+    
+    @Test
+    void allActiveProductsPageUsesSelectPlusCount() {
+        Page<ProductResponse> page = productService.getAllActiveProducts(pageOf(PRODUCT_COUNT));
+        
+        assertThat(page.getContent()).hasSize(PRODUCT_COUNT);
+        assertThat(page.getContent()).allSatisfy(p -> assertThat(p.getSeller()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void categoryPageUsesSelectPlusCount() {
+        Page<ProductResponse> page = productService.getProductsByCategory(categoryId, pageOf(PRODUCT_COUNT));
+        
+        assertThat(page.getContent()).hasSize(PRODUCT_COUNT);
+        assertThat(page.getContent()).allSatisfy(p -> assertThat(p.getCategoryId()).isEqualTo(categoryId));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void indexedSearchUsesOneStatement() {
+        Page<ProductResponse> page = productService.searchProducts(searchTerm, pageOf(PRODUCT_COUNT));
+        
+        assertThat(page.getContent()).hasSize(PRODUCT_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void cursorPageUsesOneStatement() {
+        List<ProductResponse> products = productService
+                .getActiveProductsAfter(categoryId, "createdAt", true, "", PRODUCT_COUNT)
+                .getProducts();
+        
+        assertThat(products).hasSize(PRODUCT_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void cursorWalkIncludesProductsWithNullSortKeys() {
+        ProductRequest unrated = new ProductRequest();
+        unrated.setName(searchTerm + " unrated");
+        unrated.setPrice(new BigDecimal("2.00"));
+        unrated.setCategoryId(categoryId);
+        unrated.setCarbonFootprint(null);
+        Long unratedId = productService.createProduct(unrated, sellerId).getId();
+        
+        for (boolean descending : new boolean[] { false, true }) {
+            List<Long> seen = new ArrayList<>();
+            String after = "";
+            do {
+                ProductSliceResponse slice = productService.getActiveProductsAfter(categoryId, "carbonFootprint", descending, after, 5);
+                slice.getProducts().forEach(p -> seen.add(p.getId()));
+                after = slice.getNextCursor();
+            } while (after != null);
+            
+            assertThat(seen).hasSize(PRODUCT_COUNT + 1).doesNotHaveDuplicates().contains(unratedId);
+            assertThat(seen.get(descending ? PRODUCT_COUNT : 0)).isEqualTo(unratedId);
+        }
+    }
+    
+    @Test
+    void facetedFilterUsesPageQueryPlusCategoryNames() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setQuery(searchTerm);
+        request.setMaxPrice(new BigDecimal("5.00"));
+        request.setInStock(true);
+        
+        ProductFilterResponse response = productService.filterProducts(request, "price", false, 0, 5);
+        
+        assertThat(response.getProducts()).hasSize(5);
+        assertThat(response.getTotalItems()).isEqualTo(PRODUCT_COUNT);
+        assertThat(response.getCategoryFacets()).singleElement()
+                .satisfies(facet -> assertThat(facet.getCount()).isEqualTo(PRODUCT_COUNT));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void sellerProductsUseOneStatement() {
+        List<ProductResponse> products = productService.getSellerProducts(sellerId);
+        
+        assertThat(products).hasSize(PRODUCT_COUNT);
+        assertThat(products).allSatisfy(p -> assertThat(p.getCategory()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void productDetailUsesOneStatement() {
+        Long productId = productService.getSellerProducts(sellerId).get(0).getId();
+        statistics.clear();
+        
+        ProductResponse product = productService.getProductById(productId);
+        
+        assertThat(product.getSeller()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void sellerStatsLoadOnceAndUnknownSellersAreNotTracked() {
+        assertThat(productService.getSellerStats(sellerId).getActiveProducts()).isEqualTo(PRODUCT_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        
+        productService.getSellerStats(sellerId);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        
+        statistics.clear();
+        Long unknownSellerId = Long.MAX_VALUE;
+        assertThat(productService.getSellerStats(unknownSellerId).getActiveProducts()).isZero();
+        productService.getSellerStats(unknownSellerId);
+        // Totals and user lookup on both reads: nothing was tracked for the unknown id
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+    
+    private static PageRequest pageOf(int size) {
+        return PageRequest.of(0, size, Sort.by("createdAt").descending());
+    }
+}
@@ -0,0 +1,126 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.entity.Role;
+import com.ecobazaar.entity.User;
+import com.ecobazaar.repository.RoleRepository;
+import com.ecobazaar.repository.UserRepository;
+import com.ecobazaar.security.JwtUtils;
+import com.ecobazaar.security.RevokedTokens;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Refresh tokens rotate on every use; a reused token, a logout or a password change
+ * ends the session and revokes the access tokens issued in it.
+ */
+@SpringBootTest
+class RefreshTokenServiceTest {
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private RevokedTokens revokedTokens;
+    
+    @Autowired
+    private JwtUtils jwtUtils;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private User user;
+    
+    @BeforeEach
+    void setUp() {
+        user = transactionTemplate.execute(status -> {
+            User created = user("session-" + suffix());
+            created.addRole(roleRepository.findByName(Role.RoleName.CUSTOMER)
+                    .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.CUSTOMER, "Customer"))));
+            return userRepository.save(created);
+        });
+    }
+    
+    @Test
+    void refreshIssuesANewPairForTheSameRole() {
+        RefreshTokenService.TokenPair first = issue();
+        
+        RefreshTokenService.TokenPair second = refreshTokenService.rotate(first.refreshToken());
+        
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        assertThat(second.role()).isEqualTo(Role.RoleName.CUSTOMER);
+        assertThat(jwtUtils.parsePrincipal(second.accessToken()).email()).isEqualTo(user.getEmail());
+        assertThat(tokenId(second)).isNotEqualTo(tokenId(first));
+    }
+    
+    @Test
+    void reusingARotatedTokenEndsTheSession() {
+        RefreshTokenService.TokenPair first = issue();
+        RefreshTokenService.TokenPair second = refreshTokenService.rotate(first.refreshToken());
+        
+        // The old token turns up again: someone else has a copy
+        assertThatThrownBy(() -> refreshTokenService.rotate(first.refreshToken()))
+                .hasMessage("Invalid or expired refresh token");
+        
+        assertThat(revokedTokens.isRevoked(tokenId(second))).isTrue();
+        assertThatThrownBy(() -> refreshTokenService.rotate(second.refreshToken()))
+                .hasMessage("Invalid or expired refresh token");
+    }
+    
+    @Test
+    void logoutEndsOnlyThatSession() {
+        RefreshTokenService.TokenPair laptop = issue();
+        RefreshTokenService.TokenPair phone = issue();
+        
+        refreshTokenService.revokeSession(laptop.refreshToken());
+        
+        assertThat(revokedTokens.isRevoked(tokenId(laptop))).isTrue();
+        assertThat(revokedTokens.isRevoked(tokenId(phone))).isFalse();
+        assertThat(refreshTokenService.rotate(phone.refreshToken())).isNotNull();
+    }
+    
+    @Test
+    void revokingAllSessionsEndsEverySession() {
+        RefreshTokenService.TokenPair laptop = issue();
+        RefreshTokenService.TokenPair phone = issue();
+        
+        refreshTokenService.revokeAllSessions(user.getId());
+        
+        assertThat(revokedTokens.isRevoked(tokenId(laptop))).isTrue();
+        assertThat(revokedTokens.isRevoked(tokenId(phone))).isTrue();
+        assertThatThrownBy(() -> refreshTokenService.rotate(phone.refreshToken()))
+                .hasMessage("Invalid or expired refresh token");
+    }
+    
+    @Test
+    void disabledUserCannotRefresh() {
+        RefreshTokenService.TokenPair pair = issue();
+        user.setEnabled(false);
+        userRepository.save(user);
+        
+        assertThatThrownBy(() -> refreshTokenService.rotate(pair.refreshToken()))
+                .hasMessage("Invalid or expired refresh token");
+        assertThat(revokedTokens.isRevoked(tokenId(pair))).isTrue();
+    }
+    
+    private RefreshTokenService.TokenPair issue() {
+        return refreshTokenService.issue(user.getId(), user.getEmail(), Role.RoleName.CUSTOMER);
+    }
+    
+    private long tokenId(RefreshTokenService.TokenPair pair) {
+        return jwtUtils.parsePrincipal(pair.accessToken()).tokenId();
+    }
+}
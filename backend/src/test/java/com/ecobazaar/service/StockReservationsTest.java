@@ -0,0 +1,159 @@
+package com.ecobazaar.service;
+
+import com.ecobazaar.repository.ProductRepository;
+import com.ecobazaar.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecobazaar.TestFixtures.product;
+import static com.ecobazaar.TestFixtures.suffix;
+import static com.ecobazaar.TestFixtures.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many threads reserving the same product get exactly its stock between them, sold
+ * units reach products.stock_quantity through write-back, and expired reservations
+ * and seller edits move the counter by the right amounts. Seller totals and cached
+ * details only follow a sale once it has committed.
+ */
+@SpringBootTest
+class StockReservationsTest {
+    
+    @Autowired
+    private StockReservations stockReservations;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private Long sellerId;
+    private String suffix;
+    
+    @BeforeEach
+    void setUp() {
+        suffix = suffix();
+        sellerId = userRepository.save(user("seller-" + suffix)).getId();
+    }
+    
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Long productId = productService.createProduct(product("Bamboo brush " + suffix, "4.00", 40, "0.10"), sellerId).getId();
+        
+        int threads = 16;
+        Queue<StockReservations.Reservation> granted = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        granted.add(stockReservations.reserve(productId, 1));
+                    } catch (RuntimeException e) {
+                        // Sold out
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        
+        assertThat(granted).hasSize(40);
+        assertThat(stockReservations.available(productId)).isZero();
+        
+        for (StockReservations.Reservation reservation : granted) {
+            assertThat(stockReservations.commit(reservation.id())).isTrue();
+        }
+        stockReservations.writeBack();
+        
+        assertThat(productRepository.findStockQuantityById(productId)).contains(0);
+        assertThat(productService.getProductById(productId).getStockQuantity()).isZero();
+    }
+    
+    @Test
+    void expiredReservationsReturnTheirUnits() throws Exception {
+        Long productId = productService.createProduct(product("Hemp twine " + suffix, "4.00", 10, "0.10"), sellerId).getId();
+        
+        StockReservations.Reservation reservation = stockReservations.reserve(productId, 4, Duration.ofMillis(1));
+        assertThat(stockReservations.available(productId)).isEqualTo(6);
+        
+        Thread.sleep(5);
+        stockReservations.expireReservations();
+        
+        assertThat(stockReservations.available(productId)).isEqualTo(10);
+        assertThat(stockReservations.commit(reservation.id())).isFalse();
+    }
+    
+    @Test
+    void sellerEditsAndSalesBothMoveStockByDelta() {
+        Long productId = productService.createProduct(product("Cork mat " + suffix, "4.00", 10, "0.10"), sellerId).getId();
+        
+        StockReservations.Reservation reservation = stockReservations.reserve(productId, 3);
+        assertThat(stockReservations.commit(reservation.id())).isTrue();
+        
+        // Restocked to 20 before the sale was written back: the 3 sold units still come off
+        productService.updateProduct(productId, product("Cork mat " + suffix, "4.00", 20, "0.10"), sellerId);
+        stockReservations.writeBack();
+        
+        assertThat(productRepository.findStockQuantityById(productId)).contains(17);
+        assertThat(stockReservations.available(productId)).isEqualTo(17);
+        
+        productService.updateProduct(productId, product("Cork mat " + suffix, "4.00", 5, "0.10"), sellerId);
+        assertThat(stockReservations.available(productId)).isEqualTo(5);
+        assertThat(productRepository.findStockQuantityById(productId)).contains(5);
+    }
+    
+    @Test
+    void writeBackMovesUpdatedAtSoTheDetailEtagChanges() throws Exception {
+        Long productId = productService.createProduct(product("Loofah " + suffix, "4.00", 10, "0.10"), sellerId).getId();
+        LocalDateTime before = productService.getProductById(productId).getUpdatedAt();
+        
+        Thread.sleep(5);
+        assertThat(stockReservations.commit(stockReservations.reserve(productId, 2).id())).isTrue();
+        stockReservations.writeBack();
+        
+        assertThat(productRepository.findById(productId).orElseThrow().getUpdatedAt()).isAfter(before);
+    }
+    
+    @Test
+    void salesOnlyReachReadStructuresOnceCommitted() {
+        Long productId = productService.createProduct(product("Jute twine " + suffix, "4.00", 10, "0.10"), sellerId).getId();
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(10);
+        assertThat(productService.getSellerStats(sellerId).getTotalStock()).isEqualTo(10);
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            stockReservations.applySales(Map.of(productId, 4));
+            assertThat(productService.getSellerStats(sellerId).getTotalStock()).isEqualTo(10);
+            status.setRollbackOnly();
+        });
+        assertThat(productService.getSellerStats(sellerId).getTotalStock()).isEqualTo(10);
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(10);
+        
+        transactionTemplate.executeWithoutResult(status -> stockReservations.applySales(Map.of(productId, 4)));
+        assertThat(productService.getSellerStats(sellerId).getTotalStock()).isEqualTo(6);
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(6);
+    }
+}
@@ -22,9 +22,17 @@ export const tokenService = {
 
   removeToken: () => {
     localStorage.removeItem('authToken');
+    localStorage.removeItem('refreshToken');
     delete api.defaults.headers.common['Authorization'];
   },
 
+  // Access tokens are short-lived; the refresh token gets a new one without logging in again
+  setRefreshToken: (refreshToken) => {
+    localStorage.setItem('refreshToken', refreshToken);
+  },
+
+  getRefreshToken: () => localStorage.getItem('refreshToken'),
+
   setUserData: (userData) => {
     localStorage.setItem('userData', JSON.stringify(userData));
   },
@@ -67,6 +75,7 @@ export const authService = {
 
       if (response.data.token) {
         tokenService.setToken(response.data.token);
+        tokenService.setRefreshToken(response.data.refreshToken);
         tokenService.setUserData({
           id: response.data.id,
           fullName: response.data.fullName,
@@ -81,10 +90,25 @@ export const authService = {
   },
 
   logout: () => {
+    const refreshToken = tokenService.getRefreshToken();
+    if (refreshToken) {
+      // Ends the session on the server as well; nothing to do locally if it fails
+      api.post('/auth/logout', { refreshToken }).catch(() => {});
+    }
     tokenService.removeToken();
     tokenService.clearUserData();
   },
 
+  // Swap the refresh token for a new pair; both tokens are replaced
+  refresh: async () => {
+    const response = await api.post('/auth/refresh', {
+      refreshToken: tokenService.getRefreshToken(),
+    });
+    tokenService.setToken(response.data.token);
+    tokenService.setRefreshToken(response.data.refreshToken);
+    return response.data;
+  },
+
   isAuthenticated: () => !!tokenService.getToken(),
 
   getCurrentUser: () => tokenService.getUserData(),
@@ -388,12 +412,30 @@ api.interceptors.request.use(
   }
 );
 
+// Concurrent 401s share one refresh, since each refresh token can be used only once
+let refreshing = null;
+
 // Set up response interceptor to handle common errors
 api.interceptors.response.use(
   (response) => {
     return response;
   },
-  (error) => {
+  async (error) => {
+    const original = error.config;
+    // An expired access token: refresh once and retry the request
+    if (error.response?.status === 401 && original && !original._retried
+        && !original.url?.startsWith('/auth/') && tokenService.getRefreshToken()) {
+      original._retried = true;
+      try {
+        refreshing = refreshing || authService.refresh().finally(() => { refreshing = null; });
+        const data = await refreshing;
+        original.headers.Authorization = `Bearer ${data.token}`;
+        return api(original);
+      } catch (refreshError) {
+        // Fall through to the logout below
+      }
+    }
+
     // Handle 401 errors globally
     if (error.response?.status === 401) {
       tokenService.removeToken();